@@ -0,0 +1,183 @@
+package com.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DeepSeek相关的可调参数（application.yml中的deepseek.*）
+ * API_KEY与URL仍从config.properties读取
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "deepseek")
+public class DeepSeekProperties {
+
+    private Http http = new Http();
+    private Recommend recommend = new Recommend();
+    private Idempotency idempotency = new Idempotency();
+    private Similarity similarity = new Similarity();
+    private VirtualThreads virtualThreads = new VirtualThreads();
+    private Admission admission = new Admission();
+    private Dedup dedup = new Dedup();
+    private Export export = new Export();
+    private Hedge hedge = new Hedge();
+    private Deadline deadline = new Deadline();
+    private Routing routing = new Routing();
+
+    /**
+     * 出站HTTP传输配置
+     */
+    @Data
+    public static class Http {
+        private String version = "HTTP_2";          // 首选协议：HTTP_2 / HTTP_1_1（HTTP_2经ALPN协商，不支持时自动降级）
+        private String executor = "bounded";        // 执行器：bounded=有界线程池 / virtual=虚拟线程（需JDK21+）
+        private int executorThreads = 16;           // 有界线程池线程数
+        private int executorQueueCapacity = 256;    // 有界线程池队列长度（队列满时该次交换失败）
+        private int connectTimeoutSeconds = 30;     // 建连超时
+        private long keepAliveSeconds = 300;        // 空闲连接保活时间，须与启动参数-Djdk.httpclient.keepalive.timeout一致
+        private boolean warmupEnabled = true;       // 是否在启动及空闲后预热连接
+        private int warmupConnections = 1;          // 预热连接数（HTTP/2多路复用时1个即可）
+        private long idleThresholdMs = 120000;      // 超过该时长无请求视为空闲，需重新预热
+        private long idleCheckIntervalMs = 30000;   // 空闲检查间隔
+    }
+
+    /**
+     * 推荐业务配置
+     */
+    @Data
+    public static class Recommend {
+        private int maxAlternatives = 5;            // 单次生成的候选药膳数上限
+    }
+
+    /**
+     * /recommend 幂等键配置
+     */
+    @Data
+    public static class Idempotency {
+        private long ttlSeconds = 86400;            // 幂等键保留时长
+        private long leaseSeconds = 120;            // 处理租约，超时未完成视为处理节点失联（等待方最多等到请求截止时间）
+        private long pollIntervalMs = 500;          // 跨节点等待时轮询数据库的间隔
+        private long cleanupIntervalMs = 600000;    // 过期清理间隔
+        private int cleanupBatchSize = 1000;        // 每批删除行数
+    }
+
+    /**
+     * 相似画像复用配置
+     */
+    @Data
+    public static class Similarity {
+        private boolean enabled = true;             // 是否启用相似画像复用
+        private double maxDistance = 0.2;           // 可复用的最大距离（0为完全一致）
+        private double jaccardWeight = 0.7;         // 标签Jaccard距离权重
+        private double ageWeight = 0.3;             // 年龄差权重
+        private double ageScale = 20;               // 年龄差归一化尺度（岁），超出按1计
+    }
+
+    /**
+     * 虚拟线程诊断配置
+     */
+    @Data
+    public static class VirtualThreads {
+        private long pinnedThresholdMs = 20;        // 记录钉住超过该时长的事件
+    }
+
+    /**
+     * /recommend 准入控制配置
+     * maxConcurrent + maxQueue 应小于Tomcat最大线程数，保证登录与读请求始终有线程可用
+     */
+    @Data
+    public static class Admission {
+        private boolean enabled = true;             // 是否启用准入控制
+        private int maxConcurrent = 32;             // 同时执行的推荐请求数
+        private int maxQueue = 96;                  // 等待队列总长度
+        private int maxQueuePerUser = 3;            // 单个用户最多排队的请求数
+        private long queueWaitSlaMs = 5000;         // 预计排队时间超过该值即拒绝（503）
+        private long initialServiceMs = 10000;      // 平均处理时长初始估计
+        private double ewmaAlpha = 0.2;             // 平均处理时长的指数平滑系数
+    }
+
+    /**
+     * 药膳去重回填配置
+     */
+    @Data
+    public static class Dedup {
+        private boolean backfillOnStartup = false;  // 启动后在后台执行一次存量去重回填
+        private int batchSize = 500;                // 每批读取行数
+    }
+
+    /**
+     * 数据导出配置
+     */
+    @Data
+    public static class Export {
+        private List<Long> allowedUserIds = new ArrayList<>(); // 允许导出的用户ID，为空时禁止导出
+        private int flushEveryRows = 500;           // 每写出多少行刷新一次响应流
+    }
+
+    /**
+     * DeepSeek请求对冲配置
+     */
+    @Data
+    public static class Hedge {
+        private boolean enabled = false;            // 是否启用请求对冲
+        private double percentile = 0.95;           // 主请求超过近期该分位耗时仍未返回时发出对冲请求
+        private int window = 200;                   // 耗时统计窗口（最近成功调用数）
+        private int minSamples = 20;                // 样本不足时不对冲
+        private long minDelayMs = 2000;             // 对冲延迟下限
+        private double budgetRatio = 0.05;          // 对冲预算：额外调用不超过主请求的该比例
+        private double maxBurst = 5;                // 预算令牌上限（允许的瞬时对冲数）
+    }
+
+    /**
+     * 请求截止时间配置（客户端可通过请求头缩短，不可超过上限）
+     */
+    @Data
+    public static class Deadline {
+        private long defaultMs = 10000;             // 未单独配置的接口的默认截止时间
+        private long minMs = 1000;                  // 请求头指定的截止时间下限（过小、为负或已过期的值按此处理）
+        private long maxMs = 60000;                 // 请求头指定的截止时间上限
+        private Map<String, Long> endpoints = new LinkedHashMap<>();  // 按请求路径配置的默认截止时间
+    }
+
+    /**
+     * 模型分级路由配置：按健康画像复杂度选择模型、输出token上限与提示词变体
+     */
+    @Data
+    public static class Routing {
+        private boolean enabled = false;            // 未启用时所有请求使用默认档位（deepseek-chat / 1500 tokens）
+        private List<ModelTier> tiers = new ArrayList<>();  // 取minScore不超过复杂度得分的最高档位
+        private Replay replay = new Replay();
+    }
+
+    /**
+     * 模型档位（字段默认值即未启用路由时的固定参数）
+     */
+    @Data
+    public static class ModelTier {
+        private String name = "default";            // 档位名称（用于指标）
+        private int minScore = 0;                   // 复杂度得分达到该值时使用本档位
+        private String model = "deepseek-chat";
+        private double temperature = 0.5;
+        private int maxTokens = 1500;               // 单款药膳的输出token上限（多款时按款数放大）
+        private int timeoutSeconds = 30;            // 单次AI请求超时（秒），仍受请求截止时间约束
+        private String promptVariant = "standard";  // 提示词变体：concise / standard / detailed
+        private double inputPricePerMillion = 0;    // 输入单价（元/百万tokens），用于估算成本
+        private double outputPricePerMillion = 0;   // 输出单价（元/百万tokens）
+    }
+
+    /**
+     * 离线回放：用近期健康画像逐档位调用桩服务，比较各档位的耗时、token与成功率
+     */
+    @Data
+    public static class Replay {
+        private boolean onStartup = false;          // 启动后执行一次回放
+        private String endpoint = "";               // 桩服务地址（兼容chat/completions接口），为空时不执行
+        private int sampleSize = 50;                // 回放的健康画像数（最近填写的）
+    }
+}
@@ -0,0 +1,89 @@
+package com.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 虚拟线程钉住诊断：订阅JFR的jdk.VirtualThreadPinned事件（JDK21+），
+ * 记录在synchronized或本地方法中阻塞而钉住载体线程的调用栈
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int MAX_FRAMES = 8;
+
+    @Autowired
+    private DeepSeekProperties properties;
+
+    private RecordingStream stream;
+    private final LongAdder pinnedEvents = new LongAdder();
+    private final LongAdder pinnedNanosTotal = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        if (Runtime.version().feature() < 21) {
+            log.warn("当前JDK({})不支持虚拟线程，钉住诊断未启动", Runtime.version().feature());
+            return;
+        }
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT)
+                .withThreshold(Duration.ofMillis(properties.getVirtualThreads().getPinnedThresholdMs()))
+                .withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("虚拟线程钉住诊断已启动，阈值:{}ms", properties.getVirtualThreads().getPinnedThresholdMs());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    public Map<String, Object> metricsSnapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("pinnedEvents", pinnedEvents.sum());
+        snapshot.put("pinnedMillisTotal", pinnedNanosTotal.sum() / 1_000_000);
+        return snapshot;
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedEvents.increment();
+        pinnedNanosTotal.add(event.getDuration().toNanos());
+
+        StringBuilder frames = new StringBuilder();
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace != null) {
+            List<RecordedFrame> recordedFrames = stackTrace.getFrames();
+            for (int i = 0; i < Math.min(MAX_FRAMES, recordedFrames.size()); i++) {
+                RecordedFrame frame = recordedFrames.get(i);
+                frames.append("\n\tat ")
+                        .append(frame.getMethod().getType().getName())
+                        .append('.')
+                        .append(frame.getMethod().getName())
+                        .append(':')
+                        .append(frame.getLineNumber());
+            }
+        }
+        log.warn("虚拟线程钉住载体线程{}ms{}", event.getDuration().toMillis(), frames);
+    }
+}
@@ -1,6 +1,8 @@
 package com.config;
 
+import com.interceptor.AdmissionControlInterceptor;
 import com.interceptor.LoginCheckInterceptor;
+import com.interceptor.RequestDeadlineInterceptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
@@ -12,11 +14,23 @@ public class WebConfig implements WebMvcConfigurer {
     @Autowired
     private LoginCheckInterceptor loginCheckInterceptor;
 
+    @Autowired
+    private AdmissionControlInterceptor admissionControlInterceptor;
+
+    @Autowired
+    private RequestDeadlineInterceptor requestDeadlineInterceptor;
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
+        //截止时间最先建立，准入排队的等待也计入请求预算
+        registry.addInterceptor(requestDeadlineInterceptor)
+                .addPathPatterns("/**");
         //注册自定义拦截器对象
         registry.addInterceptor(loginCheckInterceptor)
                 .addPathPatterns("/**")
                 .excludePathPatterns("/user/login");
+        //准入控制只作用于耗时的推荐请求，登录与读请求不排队；须在登录拦截器之后（依赖其解析出的用户ID）
+        registry.addInterceptor(admissionControlInterceptor)
+                .addPathPatterns("/api/medicinal-diet/recommend");
     }
 }
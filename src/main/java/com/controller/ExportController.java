@@ -0,0 +1,77 @@
+package com.controller;
+
+import com.config.DeepSeekProperties;
+import com.interceptor.LoginCheckInterceptor;
+import com.service.ExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 数据导出（供分析使用）：NDJSON或CSV流式输出，日期范围为闭区间 [from, to]
+ */
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private DeepSeekProperties properties;
+
+    @GetMapping("/profiles")
+    public void exportProfiles(@RequestParam(defaultValue = "ndjson") String format,
+                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                               @RequestAttribute(name = LoginCheckInterceptor.USER_ID_ATTR, required = false) Long userId,
+                               HttpServletResponse response) throws IOException {
+        if (!prepare(userId, format, "health_profile", response)) {
+            return;
+        }
+        exportService.exportProfiles(startOf(from), endOf(to), format, response.getOutputStream());
+    }
+
+    @GetMapping("/recommendations")
+    public void exportRecommendations(@RequestParam(defaultValue = "ndjson") String format,
+                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                      @RequestAttribute(name = LoginCheckInterceptor.USER_ID_ATTR, required = false) Long userId,
+                                      HttpServletResponse response) throws IOException {
+        if (!prepare(userId, format, "recommendation", response)) {
+            return;
+        }
+        exportService.exportRecommendations(startOf(from), endOf(to), format, response.getOutputStream());
+    }
+
+    /**
+     * 校验权限并设置响应头
+     */
+    private boolean prepare(Long userId, String format, String fileName, HttpServletResponse response) {
+        if (userId == null || !properties.getExport().getAllowedUserIds().contains(userId)) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return false;
+        }
+        boolean csv = ExportService.FORMAT_CSV.equalsIgnoreCase(format);
+        response.setContentType(csv ? "text/csv;charset=utf-8" : "application/x-ndjson;charset=utf-8");
+        response.setHeader("Content-Disposition", "attachment; filename=" + fileName + (csv ? ".csv" : ".ndjson"));
+        return true;
+    }
+
+    private static LocalDateTime startOf(LocalDate date) {
+        return date == null ? null : date.atStartOfDay();
+    }
+
+    private static LocalDateTime endOf(LocalDate date) {
+        return date == null ? null : date.plusDays(1).atStartOfDay();
+    }
+}
@@ -1,31 +1,140 @@
 package com.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.interceptor.AdmissionControlInterceptor;
+import com.interceptor.LoginCheckInterceptor;
+import com.interceptor.RequestDeadlineInterceptor;
 import com.pojo.HealthProfile;
 import com.pojo.MedicinalDiet;
 
+import com.service.IdempotencyService;
 import com.service.MedicinalDietService;
+import com.service.RecipeSearchService;
+import com.util.RequestDeadline;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/medicinal-diet")
 public class MedicinalDietController {
 
+    // 响应头：本次推荐对应的健康画像ID，用于获取下一款候选
+    private static final String PROFILE_ID_HEADER = "X-Profile-Id";
+    // 异步处理超时 = 请求剩余时间 + 余量（正常情况下截止时间先在出站请求处生效）
+    private static final long ASYNC_TIMEOUT_GRACE_MS = 2000;
+
     @Autowired
     private MedicinalDietService dietService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private RecipeSearchService recipeSearchService;
+
+    // 推荐处理线程池（与Spring MVC异步处理共用）
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private AsyncTaskExecutor taskExecutor;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * 接收用户健康画像，返回推荐的药膳
+     * alternatives>1 时一次生成多款候选，其余候选通过 /next 获取；
+     * 携带Idempotency-Key的重试会复用进行中或已完成的结果。
+     * 异步处理：请求截止时间到达或客户端断开时取消进行中的AI调用，不再写库；
+     * 携带Idempotency-Key时AI调用与写库不随之取消（处理方不受截止时间约束），完成后保存结果供重试取回。
+     * 用DeferredResult而非WebAsyncTask：后者超时或出错时会中断处理线程，幂等请求的AI调用也会被中止
      */
     @PostMapping("/recommend")
-    public ResponseEntity<MedicinalDiet> recommend(@RequestBody HealthProfile profile) {
+    public DeferredResult<ResponseEntity<MedicinalDiet>> recommend(@RequestBody HealthProfile profile,
+                                                                   @RequestParam(defaultValue = "1") int alternatives,
+                                                                   @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+                                                                   @RequestAttribute(name = LoginCheckInterceptor.USER_ID_ATTR, required = false) Long userId,
+                                                                   @RequestAttribute(RequestDeadlineInterceptor.DEADLINE_ATTR) RequestDeadline deadline,
+                                                                   @RequestAttribute(name = AdmissionControlInterceptor.PERMIT_ATTR, required = false) AdmissionControlInterceptor.Permit permit) {
+        //画像归属以登录令牌为准，忽略请求体中的userId
+        profile.setUserId(userId);
+        DeferredResult<ResponseEntity<MedicinalDiet>> result = new DeferredResult<>(
+                Math.max(0, deadline.remainingMillis()) + ASYNC_TIMEOUT_GRACE_MS);
+        //取消只影响绑定了本次截止时间的处理（幂等键的处理方不绑定），以及等待同一幂等键结果的轮询
+        result.onTimeout(() -> {
+            deadline.cancel();
+            result.setResult(ResponseEntity.status(504).body(null));
+        });
+        //客户端断开等容器错误
+        result.onError(error -> {
+            RequestDeadline.recordAbortedRequest();
+            deadline.cancel();
+            result.setResult(ResponseEntity.status(500).body(null));
+        });
+        //准入许可随处理线程结束归还：超时返回504后处理可能仍在进行（幂等请求会继续完成），
+        //这期间继续占用名额，线程池中的推荐任务数不超过准入并发上限
+        if (permit != null) {
+            permit.handOff();
+        }
+        taskExecutor.execute(() -> {
+            RequestDeadline.bind(deadline);
+            try {
+                result.setResult(doRecommend(profile, alternatives, idempotencyKey, userId));
+            } finally {
+                RequestDeadline.unbind();
+                if (permit != null) {
+                    permit.release();
+                }
+            }
+        });
+        return result;
+    }
+
+    private ResponseEntity<MedicinalDiet> doRecommend(HealthProfile profile, int alternatives,
+                                                      String idempotencyKey, Long userId) {
         try {
-            MedicinalDiet recommended = dietService.recommendAndSave(profile);
-            return ResponseEntity.ok(recommended);
+            String fingerprint = objectMapper.writeValueAsString(profile) + "|" + alternatives;
+            MedicinalDiet recommended = idempotencyService.execute(userId, idempotencyKey, fingerprint, profile,
+                    onSaved -> dietService.recommendAndSave(profile, alternatives, onSaved));
+            return ResponseEntity.ok()
+                    .header(PROFILE_ID_HEADER, String.valueOf(profile.getProfileId()))
+                    .body(recommended);
+        } catch (RequestDeadline.DeadlineExceededException e) {
+            return ResponseEntity.status(504).body(null);
+        } catch (IdempotencyService.KeyInProgressException e) {
+            return ResponseEntity.status(409).header("Retry-After", "5").body(null);
+        } catch (IdempotencyService.KeyMismatchException | IllegalArgumentException e) {
+            return ResponseEntity.status(422).body(null);
         } catch (Exception e) {
             return ResponseEntity.status(500).body(null);
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * 返回下一款尚未查看的候选药膳（直接读库，不调用AI）
+     */
+    @GetMapping("/next")
+    public ResponseEntity<MedicinalDiet> next(@RequestParam(required = false) Long profileId,
+                                              @RequestAttribute(name = LoginCheckInterceptor.USER_ID_ATTR, required = false) Long userId) {
+        MedicinalDiet next = dietService.nextAlternative(userId, profileId);
+        if (next == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(next);
+    }
+
+    /**
+     * 检索已生成的药膳（按名称、功效、成分、做法全文匹配）
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<MedicinalDiet>> search(@RequestParam("q") String query,
+                                                      @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(recipeSearchService.search(query, limit));
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.controller;
+
+import com.config.VirtualThreadPinningMonitor;
+import com.interceptor.AdmissionControlInterceptor;
+import com.pojo.Result;
+import com.service.ModelTierReplayJob;
+import com.service.RecipeDedupBackfillJob;
+import com.service.RecipeSearchService;
+import com.service.SimilarRecipeService;
+import com.util.DeepSeekClient;
+import com.util.DeepSeekTransport;
+import com.util.RequestDeadline;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 运行指标查询
+ */
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    @Autowired
+    private DeepSeekTransport deepSeekTransport;
+
+    @Autowired
+    private DeepSeekClient deepSeekClient;
+
+    @Autowired
+    private SimilarRecipeService similarRecipeService;
+
+    @Autowired
+    private AdmissionControlInterceptor admissionControlInterceptor;
+
+    @Autowired
+    private RecipeSearchService recipeSearchService;
+
+    @Autowired
+    private RecipeDedupBackfillJob recipeDedupBackfillJob;
+
+    @Autowired
+    private ModelTierReplayJob modelTierReplayJob;
+
+    @Autowired(required = false)
+    private VirtualThreadPinningMonitor pinningMonitor;
+
+    @GetMapping
+    public Result metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("deepseekTransport", deepSeekTransport.metricsSnapshot());
+        metrics.put("deepseekHedge", deepSeekClient.hedgeMetricsSnapshot());
+        metrics.put("modelTiers", deepSeekClient.tierMetricsSnapshot());
+        metrics.put("requestDeadline", RequestDeadline.metricsSnapshot());
+        metrics.put("similarProfiles", similarRecipeService.metricsSnapshot());
+        metrics.put("admission", admissionControlInterceptor.metricsSnapshot());
+        metrics.put("recipeSearch", recipeSearchService.metricsSnapshot());
+        metrics.put("recipeDedupBackfill", recipeDedupBackfillJob.metricsSnapshot());
+        metrics.put("modelTierReplay", modelTierReplayJob.metricsSnapshot());
+        if (pinningMonitor != null) {
+            metrics.put("virtualThreadPinning", pinningMonitor.metricsSnapshot());
+        }
+        return Result.success(metrics);
+    }
+}
@@ -0,0 +1,17 @@
+package com.event;
+
+/**
+ * 重复药膳合并事件：重复药膳的关联已改指向规范药膳，重复行已删除（事务提交后处理）
+ */
+public class RecipeCollapsedEvent {
+    private final long duplicateId;
+    private final long canonicalId;
+
+    public RecipeCollapsedEvent(long duplicateId, long canonicalId) {
+        this.duplicateId = duplicateId;
+        this.canonicalId = canonicalId;
+    }
+
+    public long getDuplicateId() { return duplicateId; }
+    public long getCanonicalId() { return canonicalId; }
+}
@@ -0,0 +1,25 @@
+package com.event;
+
+import com.pojo.HealthProfile;
+import com.pojo.MedicinalDiet;
+
+import java.util.List;
+
+/**
+ * 推荐结果保存事件：健康画像、首推药膳及本次新写入的药膳（事务提交后处理）
+ */
+public class RecommendationSavedEvent {
+    private final HealthProfile profile;
+    private final MedicinalDiet recommended;
+    private final List<MedicinalDiet> insertedRecipes;
+
+    public RecommendationSavedEvent(HealthProfile profile, MedicinalDiet recommended, List<MedicinalDiet> insertedRecipes) {
+        this.profile = profile;
+        this.recommended = recommended;
+        this.insertedRecipes = insertedRecipes;
+    }
+
+    public HealthProfile getProfile() { return profile; }
+    public MedicinalDiet getRecommended() { return recommended; }
+    public List<MedicinalDiet> getInsertedRecipes() { return insertedRecipes; }
+}
@@ -0,0 +1,139 @@
+package com.interceptor;
+
+import com.alibaba.fastjson.JSONObject;
+import com.config.DeepSeekProperties;
+import com.pojo.Result;
+import com.util.FairAdmissionGate;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//推荐请求准入控制：按用户公平排队，预计等待超过SLA时提前返回503
+@Component
+@Slf4j
+public class AdmissionControlInterceptor implements AsyncHandlerInterceptor {
+    // 准入许可，异步处理方通过 @RequestAttribute 取得并接管归还
+    public static final String PERMIT_ATTR = "admission_permit";
+    private static final long MAX_RETRY_AFTER_SECONDS = 60;
+
+    @Autowired
+    private DeepSeekProperties properties;
+
+    private FairAdmissionGate gate;
+
+    @PostConstruct
+    public void init() {
+        DeepSeekProperties.Admission cfg = properties.getAdmission();
+        gate = new FairAdmissionGate(cfg.getMaxConcurrent(), cfg.getMaxQueue(), cfg.getMaxQueuePerUser(),
+                cfg.getQueueWaitSlaMs(), cfg.getInitialServiceMs(), cfg.getEwmaAlpha());
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        //异步分派（推荐结果返回）不再重复申请许可
+        if (!properties.getAdmission().isEnabled() || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        //用户ID由登录拦截器解析后放入request
+        Long userId = (Long) request.getAttribute(LoginCheckInterceptor.USER_ID_ATTR);
+        FairAdmissionGate.Decision decision = gate.acquire(userId);
+        if (decision.isAdmitted()) {
+            request.setAttribute(PERMIT_ATTR, new Permit(gate, decision.getTicket()));
+            return true;
+        }
+
+        long retryAfter = Math.max(1, Math.min(MAX_RETRY_AFTER_SECONDS, (decision.getPredictedWaitMs() + 999) / 1000));
+        log.info("过载拒绝推荐请求，用户:{}，预计等待:{}ms", userId, decision.getPredictedWaitMs());
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader("Retry-After", String.valueOf(retryAfter));
+        response.setContentType("application/json;charset=utf-8");
+        response.getWriter().write(JSONObject.toJSONString(Result.error("SERVER_BUSY")));
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Permit permit = (Permit) request.getAttribute(PERMIT_ATTR);
+        if (permit != null) {
+            request.removeAttribute(PERMIT_ATTR);
+            permit.release();
+        }
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Permit permit = (Permit) request.getAttribute(PERMIT_ATTR);
+        if (permit == null) {
+            return;
+        }
+        request.removeAttribute(PERMIT_ATTR);
+        //处理方已接管：许可持有到处理线程结束。异步周期可能先因超时结束，而处理线程仍在调用AI，
+        //此时归还会让新请求与之叠加，超出并发上限
+        if (permit.isHandedOff()) {
+            return;
+        }
+        //其他异步处理：许可持有到异步周期结束（含超时、客户端断开），由容器回调归还
+        request.getAsyncContext().addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                permit.release();
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+    }
+
+    public Map<String, Object> metricsSnapshot() {
+        return gate.metricsSnapshot();
+    }
+
+    /**
+     * 准入许可：重复归还只生效一次。
+     * 异步处理方在提交处理任务前调用handOff()，处理线程结束时调用release()
+     */
+    public static class Permit {
+        private final FairAdmissionGate gate;
+        private final FairAdmissionGate.Ticket ticket;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile boolean handedOff;
+
+        Permit(FairAdmissionGate gate, FairAdmissionGate.Ticket ticket) {
+            this.gate = gate;
+            this.ticket = ticket;
+        }
+
+        public void handOff() {
+            handedOff = true;
+        }
+
+        public boolean isHandedOff() {
+            return handedOff;
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                gate.release(ticket);
+            }
+        }
+    }
+}
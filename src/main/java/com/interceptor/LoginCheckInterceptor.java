@@ -3,6 +3,7 @@ package com.interceptor;
 import com.alibaba.fastjson.JSONObject;
 import com.pojo.Result;
 import com.util.JwtUtils;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
@@ -14,6 +15,9 @@ import org.springframework.web.servlet.HandlerInterceptor;
 @Component //当前拦截器对象由Spring创建和管理
 @Slf4j
 public class LoginCheckInterceptor implements HandlerInterceptor {
+    //解析出的登录用户ID在request中的属性名
+    public static final String USER_ID_ATTR = "user_id";
+
     //前置方式
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
@@ -43,7 +47,11 @@ public class LoginCheckInterceptor implements HandlerInterceptor {
 
         //5.解析token，如果解析失败，返回错误结果（未登录）
         try {
-            JwtUtils.parseJWT(token);
+            Claims claims = JwtUtils.parseJWT(token);
+            Object userId = claims.get("user_id");
+            if (userId instanceof Number) {
+                request.setAttribute(USER_ID_ATTR, ((Number) userId).longValue());
+            }
         } catch (Exception e) {
             log.info("令牌解析失败!");
 
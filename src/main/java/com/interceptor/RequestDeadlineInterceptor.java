@@ -0,0 +1,66 @@
+package com.interceptor;
+
+import com.config.DeepSeekProperties;
+import com.util.RequestDeadline;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+//请求截止时间：取自请求头或按接口默认值，最先执行，使准入排队时间也计入预算
+@Component
+@Slf4j
+public class RequestDeadlineInterceptor implements AsyncHandlerInterceptor {
+    public static final String DEADLINE_ATTR = "request_deadline";
+    // 相对超时（毫秒）
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+    // 绝对截止时间（epoch毫秒），上游已设定截止时间时透传
+    public static final String DEADLINE_HEADER = "X-Request-Deadline";
+
+    @Autowired
+    private DeepSeekProperties properties;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        //异步分派沿用首次分派时建立的截止时间
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        RequestDeadline deadline = new RequestDeadline(resolveTimeoutMs(request));
+        request.setAttribute(DEADLINE_ATTR, deadline);
+        RequestDeadline.bind(deadline);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestDeadline.unbind();
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        //异步处理时请求线程即将归还容器
+        RequestDeadline.unbind();
+    }
+
+    private long resolveTimeoutMs(HttpServletRequest request) {
+        DeepSeekProperties.Deadline cfg = properties.getDeadline();
+        long timeoutMs = cfg.getEndpoints().getOrDefault(request.getRequestURI(), cfg.getDefaultMs());
+        try {
+            String timeout = request.getHeader(TIMEOUT_HEADER);
+            String deadline = request.getHeader(DEADLINE_HEADER);
+            if (StringUtils.hasText(timeout)) {
+                timeoutMs = Long.parseLong(timeout.trim());
+            } else if (StringUtils.hasText(deadline)) {
+                timeoutMs = Long.parseLong(deadline.trim()) - System.currentTimeMillis();
+            }
+        } catch (NumberFormatException e) {
+            log.warn("忽略无效的截止时间请求头：{}", e.getMessage());
+        }
+        return Math.max(cfg.getMinMs(), Math.min(timeoutMs, cfg.getMaxMs()));
+    }
+}
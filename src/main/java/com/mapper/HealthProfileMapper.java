@@ -2,6 +2,11 @@ package com.mapper;
 
 import com.pojo.HealthProfile;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Mapper
 public interface HealthProfileMapper {
@@ -11,4 +16,23 @@ public interface HealthProfileMapper {
      */
     void insertHealthProfile(HealthProfile profile);
 
+    /**
+     * 根据ID查询健康画像
+     * @param profileId 健康画像ID
+     */
+    HealthProfile selectById(Long profileId);
+
+    /**
+     * 按填写时间范围游标读取健康画像（须在事务内遍历）
+     * @param from 起始时间（含），为空不限
+     * @param to 截止时间（不含），为空不限
+     */
+    Cursor<HealthProfile> cursorByCreatedTime(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 查询最近填写的健康画像
+     * @param limit 返回条数
+     */
+    List<HealthProfile> selectRecent(@Param("limit") int limit);
+
 }
\ No newline at end of file
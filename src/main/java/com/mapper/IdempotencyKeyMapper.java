@@ -0,0 +1,42 @@
+package com.mapper;
+
+import com.pojo.IdempotencyRecord;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface IdempotencyKeyMapper {
+    /**
+     * 占用幂等键（已存在时不插入）
+     * @return 1=占用成功 0=键已存在
+     */
+    int tryInsert(@Param("record") IdempotencyRecord record,
+                  @Param("leaseSeconds") long leaseSeconds,
+                  @Param("ttlSeconds") long ttlSeconds);
+
+    IdempotencyRecord select(@Param("userId") Long userId, @Param("idemKey") String idemKey);
+
+    /**
+     * 接管失败或租约已过期的幂等键
+     * @return 1=接管成功
+     */
+    int claim(@Param("userId") Long userId, @Param("idemKey") String idemKey,
+              @Param("owner") String owner, @Param("leaseSeconds") long leaseSeconds);
+
+    int markDone(@Param("userId") Long userId, @Param("idemKey") String idemKey, @Param("owner") String owner,
+                 @Param("profileId") Long profileId, @Param("recipeId") Long recipeId);
+
+    int markFailed(@Param("userId") Long userId, @Param("idemKey") String idemKey, @Param("owner") String owner);
+
+    /**
+     * 将已完成结果从重复药膳改指向规范药膳
+     * @return 受影响行数
+     */
+    int repointRecipe(@Param("fromRecipeId") Long fromRecipeId, @Param("toRecipeId") Long toRecipeId);
+
+    /**
+     * 分批删除过期幂等键
+     * @return 删除行数
+     */
+    int deleteExpired(@Param("limit") int limit);
+}
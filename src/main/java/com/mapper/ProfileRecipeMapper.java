@@ -0,0 +1,68 @@
+package com.mapper;
+
+import com.pojo.ProfileRecipe;
+import com.pojo.RecommendationRecord;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Mapper
+public interface ProfileRecipeMapper {
+    /**
+     * 批量插入健康画像与药膳的关联
+     * @param links 关联记录
+     */
+    void insertLinks(@Param("links") List<ProfileRecipe> links);
+
+    /**
+     * 查询某健康画像下顺序最靠前的未推送候选
+     * @param profileId 健康画像ID
+     */
+    ProfileRecipe selectNextUnserved(@Param("profileId") Long profileId);
+
+    /**
+     * 查询用户最近一次仍有未推送候选的健康画像ID
+     * @param userId 用户ID
+     */
+    Long selectLatestProfileIdWithUnserved(@Param("userId") Long userId);
+
+    /**
+     * 查询健康画像与药膳的关联（含为该画像保存的禁忌、功效说明）
+     */
+    ProfileRecipe selectLink(@Param("profileId") Long profileId, @Param("recipeId") Long recipeId);
+
+    /**
+     * 查询已关联到该用户任一健康画像的药膳ID（去重）
+     * @param userId 用户ID
+     */
+    List<Long> selectRecipeIdsByUser(@Param("userId") Long userId);
+
+    /**
+     * 标记候选为已推送（仅在未推送时生效，用于并发下的抢占）
+     * @return 受影响行数
+     */
+    int markServed(@Param("id") Long id);
+
+    /**
+     * 流式扫描所有健康画像及其首推药膳（逐行回调，不在内存中汇总）
+     * @param handler 行处理器
+     */
+    void scanPrimaryRecommendations(ResultHandler<RecommendationRecord> handler);
+
+    /**
+     * 将关联从重复药膳改指向规范药膳（重复药膳的禁忌、功效说明与规范药膳不同时保留在关联上）
+     * @return 受影响行数
+     */
+    int repointRecipe(@Param("fromRecipeId") Long fromRecipeId, @Param("toRecipeId") Long toRecipeId);
+
+    /**
+     * 按推荐时间范围游标读取推荐记录（画像+药膳，须在事务内遍历）
+     * @param from 起始时间（含），为空不限
+     * @param to 截止时间（不含），为空不限
+     */
+    Cursor<RecommendationRecord> cursorRecommendations(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
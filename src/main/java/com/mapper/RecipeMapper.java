@@ -2,12 +2,53 @@ package com.mapper;
 
 import com.pojo.MedicinalDiet;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.util.List;
 
 @Mapper
 public interface RecipeMapper {
     /**
-     * 插入完整的药膳推荐记录
+     * 插入完整的药膳推荐记录；内容指纹与有效药膳重复时不插入，回填已存在的药膳ID
      * @param diet 包含所有字段的药膳对象
+     * @return 1=新插入 0=指纹已存在（依赖连接参数useAffectedRows=true）
+     */
+    int insertRecipe(MedicinalDiet diet);
+
+    /**
+     * 根据ID查询药膳
+     * @param id 药膳ID
+     */
+    MedicinalDiet selectById(Long id);
+
+    /**
+     * 按ID批量查询有效药膳（顺序不保证）
+     * @param ids 药膳ID列表
+     */
+    List<MedicinalDiet> selectValidByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * 流式扫描有效药膳的检索字段（id、name、effect、ingredients、method）
+     * @param handler 行处理器
+     */
+    void scanForSearch(ResultHandler<MedicinalDiet> handler);
+
+    /**
+     * 根据内容指纹查询规范药膳ID（只在有效药膳中查找）
+     * @param contentHash 内容指纹
+     */
+    Long selectIdByContentHash(@Param("contentHash") String contentHash);
+
+    /**
+     * 按主键顺序读取afterId之后的一批有效药膳（id、name、ingredients、content_hash）
+     */
+    List<MedicinalDiet> selectBatchAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    int updateContentHash(@Param("id") Long id, @Param("contentHash") String contentHash);
+
+    /**
+     * 删除已合并的重复药膳（关联须先改指向规范药膳）
      */
-    void insertRecipe(MedicinalDiet diet);
-}
\ No newline at end of file
+    int deleteById(@Param("id") Long id);
+}
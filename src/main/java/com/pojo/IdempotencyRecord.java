@@ -0,0 +1,24 @@
+package com.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+    public static final int STATE_IN_PROGRESS = 0;
+    public static final int STATE_DONE = 1;
+    public static final int STATE_FAILED = 2;
+
+    private Long userId;          // 用户ID
+    private String idemKey;       // 幂等键
+    private String requestHash;   // 请求体摘要
+    private Integer state;        // 状态 0=处理中 1=完成 2=失败
+    private String owner;         // 处理节点
+    private Long profileId;       // 结果：健康画像ID
+    private Long recipeId;        // 结果：首推药膳ID
+}
@@ -21,6 +21,7 @@ public class MedicinalDiet {
     private String taboo;        // 禁忌说明
     private String suitableTime; // 适宜食用时间
     private List<String> tags;   // 标签列表（用于JSON存储）
+    private String contentHash;  // 内容指纹（规范化名称+成分集合，用于去重）
 
     // 无参构造
     public MedicinalDiet() {}
@@ -34,6 +35,9 @@ public class MedicinalDiet {
 
     public List<String> getTags() { return tags; }
     public void setTags(List<String> tags) { this.tags = tags; }
+
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
     // Getter和Setter（完整生成）
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
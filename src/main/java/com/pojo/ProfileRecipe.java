@@ -0,0 +1,23 @@
+package com.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProfileRecipe {
+    private Long id;              // 主键ID
+    private Long profileId;       // 健康画像ID
+    private Long recipeId;        // 药膳ID
+    private Integer rankNo;       // 候选顺序（0为首推）
+    private Integer served;       // 是否已推送 1=是 0=否
+    private String taboo;         // 为该画像生成的禁忌说明（与规范药膳相同时为空）
+    private String effect;        // 为该画像生成的功效说明（与规范药膳相同时为空）
+    private LocalDateTime createdTime; // 创建时间
+}
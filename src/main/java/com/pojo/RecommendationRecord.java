@@ -0,0 +1,37 @@
+package com.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 健康画像与推荐药膳的扁平视图，用于流式扫描与导出
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecommendationRecord {
+    private Long profileId;       // 健康画像ID
+    private Long userId;          // 用户ID
+    private Integer age;          // 年龄
+    private Integer gender;       // 性别 1=男 0=女
+    private Integer bloodPressure;// 血压 -1=低 0=正常 1=高
+    private Integer bloodSugar;   // 血糖 -1=低 0=正常 1=高
+    private String symptoms;      // JSON字符串，症状标签
+    private String diseases;      // JSON字符串，疾病史
+    private Long recipeId;        // 药膳ID
+    private LocalDateTime createdTime; // 画像填写时间
+
+    // 以下字段仅导出时填充
+    private Integer rankNo;       // 候选顺序（0为首推）
+    private Integer served;       // 是否已推送
+    private String recipeName;    // 药膳名称
+    private String recipeEffect;  // 功效说明
+    private String recipeIngredients; // 制作成分
+    private String recipeTaboo;   // 禁忌说明
+    private LocalDateTime recommendedTime; // 推荐时间
+}
@@ -0,0 +1,156 @@
+package com.service;
+
+import com.config.DeepSeekProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mapper.HealthProfileMapper;
+import com.mapper.ProfileRecipeMapper;
+import com.pojo.HealthProfile;
+import com.pojo.RecommendationRecord;
+import org.apache.ibatis.cursor.Cursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 健康画像与推荐记录导出：通过MyBatis游标逐行读取（MySQL流式结果集），
+ * 逐行写入响应流并定期刷新，内存占用与行数无关；客户端读取慢时写操作阻塞，自然形成背压
+ */
+@Service
+public class ExportService {
+    private static final Logger log = LoggerFactory.getLogger(ExportService.class);
+
+    public static final String FORMAT_CSV = "csv";
+
+    private static final Map<String, Function<HealthProfile, Object>> PROFILE_COLUMNS = new LinkedHashMap<>();
+    private static final Map<String, Function<RecommendationRecord, Object>> RECOMMENDATION_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        PROFILE_COLUMNS.put("profile_id", HealthProfile::getProfileId);
+        PROFILE_COLUMNS.put("user_id", HealthProfile::getUserId);
+        PROFILE_COLUMNS.put("age", HealthProfile::getAge);
+        PROFILE_COLUMNS.put("gender", HealthProfile::getGender);
+        PROFILE_COLUMNS.put("blood_pressure", HealthProfile::getBloodPressure);
+        PROFILE_COLUMNS.put("blood_sugar", HealthProfile::getBloodSugar);
+        PROFILE_COLUMNS.put("symptoms", HealthProfile::getSymptoms);
+        PROFILE_COLUMNS.put("diseases", HealthProfile::getDiseases);
+        PROFILE_COLUMNS.put("created_time", HealthProfile::getCreatedTime);
+
+        RECOMMENDATION_COLUMNS.put("profile_id", RecommendationRecord::getProfileId);
+        RECOMMENDATION_COLUMNS.put("user_id", RecommendationRecord::getUserId);
+        RECOMMENDATION_COLUMNS.put("age", RecommendationRecord::getAge);
+        RECOMMENDATION_COLUMNS.put("gender", RecommendationRecord::getGender);
+        RECOMMENDATION_COLUMNS.put("blood_pressure", RecommendationRecord::getBloodPressure);
+        RECOMMENDATION_COLUMNS.put("blood_sugar", RecommendationRecord::getBloodSugar);
+        RECOMMENDATION_COLUMNS.put("symptoms", RecommendationRecord::getSymptoms);
+        RECOMMENDATION_COLUMNS.put("diseases", RecommendationRecord::getDiseases);
+        RECOMMENDATION_COLUMNS.put("recipe_id", RecommendationRecord::getRecipeId);
+        RECOMMENDATION_COLUMNS.put("rank_no", RecommendationRecord::getRankNo);
+        RECOMMENDATION_COLUMNS.put("served", RecommendationRecord::getServed);
+        RECOMMENDATION_COLUMNS.put("recipe_name", RecommendationRecord::getRecipeName);
+        RECOMMENDATION_COLUMNS.put("recipe_effect", RecommendationRecord::getRecipeEffect);
+        RECOMMENDATION_COLUMNS.put("recipe_ingredients", RecommendationRecord::getRecipeIngredients);
+        RECOMMENDATION_COLUMNS.put("recipe_taboo", RecommendationRecord::getRecipeTaboo);
+        RECOMMENDATION_COLUMNS.put("recommended_time", RecommendationRecord::getRecommendedTime);
+    }
+
+    @Autowired
+    private HealthProfileMapper healthProfileMapper;
+
+    @Autowired
+    private ProfileRecipeMapper profileRecipeMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DeepSeekProperties properties;
+
+    /**
+     * 导出健康画像
+     * @return 导出行数
+     */
+    @Transactional(readOnly = true)
+    public long exportProfiles(LocalDateTime from, LocalDateTime to, String format, OutputStream out) throws IOException {
+        try (Cursor<HealthProfile> cursor = healthProfileMapper.cursorByCreatedTime(from, to)) {
+            return write(cursor, PROFILE_COLUMNS, format, out);
+        }
+    }
+
+    /**
+     * 导出推荐记录（画像+药膳）
+     * @return 导出行数
+     */
+    @Transactional(readOnly = true)
+    public long exportRecommendations(LocalDateTime from, LocalDateTime to, String format, OutputStream out) throws IOException {
+        try (Cursor<RecommendationRecord> cursor = profileRecipeMapper.cursorRecommendations(from, to)) {
+            return write(cursor, RECOMMENDATION_COLUMNS, format, out);
+        }
+    }
+
+    private <T> long write(Cursor<T> cursor, Map<String, Function<T, Object>> columns,
+                           String format, OutputStream out) throws IOException {
+        boolean csv = FORMAT_CSV.equalsIgnoreCase(format);
+        int flushEvery = properties.getExport().getFlushEveryRows();
+        long start = System.currentTimeMillis();
+        long rows = 0;
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (csv) {
+            writer.write(String.join(",", columns.keySet()));
+            writer.write("\r\n");
+        }
+        Map<String, Object> line = new LinkedHashMap<>();
+        for (T row : cursor) {
+            if (csv) {
+                boolean firstColumn = true;
+                for (Function<T, Object> getter : columns.values()) {
+                    if (!firstColumn) {
+                        writer.write(',');
+                    }
+                    writer.write(csvValue(getter.apply(row)));
+                    firstColumn = false;
+                }
+                writer.write("\r\n");
+            } else {
+                for (Map.Entry<String, Function<T, Object>> column : columns.entrySet()) {
+                    line.put(column.getKey(), column.getValue().apply(row));
+                }
+                writer.write(objectMapper.writeValueAsString(line));
+                writer.write('\n');
+            }
+            if (++rows % flushEvery == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+        log.info("导出完成，格式:{}，行数:{}，耗时:{}ms", csv ? "csv" : "ndjson", rows, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    /**
+     * CSV字段转义：含逗号、引号或换行时加引号，内部引号加倍
+     */
+    private static String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,230 @@
+package com.service;
+
+import com.config.DeepSeekProperties;
+import com.mapper.IdempotencyKeyMapper;
+import com.mapper.ProfileRecipeMapper;
+import com.mapper.RecipeMapper;
+import com.pojo.HealthProfile;
+import com.pojo.IdempotencyRecord;
+import com.pojo.MedicinalDiet;
+import com.util.RequestDeadline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * /recommend 的幂等处理：同一Idempotency-Key的重试复用进行中或已完成的结果，
+ * 状态持久化在idempotency_key表中，多节点共享。
+ * 处理方不受请求截止时间约束（客户端超时或断开后仍完成并保存结果），完成标记与推荐结果在同一事务中写入；
+ * 等待方最多等到请求截止时间，请求失效后立即退出
+ */
+@Service
+public class IdempotencyService {
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final int MAX_KEY_LENGTH = 64;
+
+    // 本节点标识，用于租约归属
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName() + "-"
+            + UUID.randomUUID().toString().substring(0, 8);
+
+    // 本节点正在处理的请求，同节点重试直接挂到该结果上，无需轮询数据库
+    private final ConcurrentHashMap<String, CompletableFuture<MedicinalDiet>> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    private IdempotencyKeyMapper idempotencyKeyMapper;
+
+    @Autowired
+    private RecipeMapper recipeMapper;
+
+    @Autowired
+    private ProfileRecipeMapper profileRecipeMapper;
+
+    @Autowired
+    private DeepSeekProperties properties;
+
+    /**
+     * 以幂等方式执行推荐
+     * @param userId 当前用户ID
+     * @param key 客户端传入的Idempotency-Key，为空时直接执行
+     * @param requestFingerprint 请求内容摘要来源（同一键对应不同内容时拒绝）
+     * @param profile 健康画像（命中已完成结果时回填其profileId）
+     * @param action 实际的推荐流程
+     */
+    public MedicinalDiet execute(Long userId, String key, String requestFingerprint,
+                                 HealthProfile profile, RecommendAction action) {
+        if (!StringUtils.hasText(key)) {
+            return action.run(saved -> { });
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key长度不能超过" + MAX_KEY_LENGTH);
+        }
+        DeepSeekProperties.Idempotency cfg = properties.getIdempotency();
+        Long scopedUserId = userId == null ? 0L : userId;
+        String requestHash = sha256(requestFingerprint);
+
+        IdempotencyRecord record = IdempotencyRecord.builder()
+                .userId(scopedUserId)
+                .idemKey(key)
+                .requestHash(requestHash)
+                .owner(nodeId)
+                .build();
+        if (idempotencyKeyMapper.tryInsert(record, cfg.getLeaseSeconds(), cfg.getTtlSeconds()) == 1) {
+            return runOwned(scopedUserId, key, profile, action);
+        }
+
+        // 等待上限取请求截止时间（客户端已放弃后继续等待没有意义）；未绑定截止时间时以处理租约为限
+        RequestDeadline requestDeadline = RequestDeadline.current();
+        long leaseDeadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(cfg.getLeaseSeconds());
+        while (true) {
+            IdempotencyRecord existing = idempotencyKeyMapper.select(scopedUserId, key);
+            if (existing == null) {
+                // 已被TTL清理，重新占用
+                if (idempotencyKeyMapper.tryInsert(record, cfg.getLeaseSeconds(), cfg.getTtlSeconds()) == 1) {
+                    return runOwned(scopedUserId, key, profile, action);
+                }
+                continue;
+            }
+            if (!requestHash.equals(existing.getRequestHash())) {
+                throw new KeyMismatchException("Idempotency-Key已用于不同的请求内容");
+            }
+            if (existing.getState() == IdempotencyRecord.STATE_DONE) {
+                log.info("幂等键{}命中已完成结果，药膳ID:{}", key, existing.getRecipeId());
+                profile.setProfileId(existing.getProfileId());
+                return MedicinalDietService.withProfileText(recipeMapper.selectById(existing.getRecipeId()),
+                        profileRecipeMapper.selectLink(existing.getProfileId(), existing.getRecipeId()));
+            }
+            // 失败或处理节点租约过期：由本次请求接管
+            if (idempotencyKeyMapper.claim(scopedUserId, key, nodeId, cfg.getLeaseSeconds()) == 1) {
+                log.info("接管幂等键{}（原处理节点:{}）", key, existing.getOwner());
+                return runOwned(scopedUserId, key, profile, action);
+            }
+
+            long remaining;
+            if (requestDeadline != null) {
+                // 客户端已超时或断开：不再占用线程与准入许可轮询结果
+                requestDeadline.checkActive("等待幂等结果");
+                remaining = Math.max(1, requestDeadline.remainingMillis());
+            } else {
+                remaining = leaseDeadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new KeyInProgressException("相同Idempotency-Key的请求仍在处理中");
+                }
+            }
+            awaitInFlightOrSleep(scopedUserId, key, Math.min(remaining, cfg.getPollIntervalMs()));
+        }
+    }
+
+    /**
+     * 定期分批清理过期幂等键
+     */
+    @Scheduled(fixedDelayString = "${deepseek.idempotency.cleanup-interval-ms:600000}")
+    public void cleanupExpired() {
+        int batchSize = properties.getIdempotency().getCleanupBatchSize();
+        int total = 0;
+        int deleted;
+        do {
+            deleted = idempotencyKeyMapper.deleteExpired(batchSize);
+            total += deleted;
+        } while (deleted == batchSize);
+        if (total > 0) {
+            log.info("清理过期幂等键{}条", total);
+        }
+    }
+
+    /**
+     * 作为处理方执行：解除当前请求截止时间的绑定，客户端超时或断开时不取消AI调用与写库，
+     * 结果写入幂等键供重试取回（否则重试会重新占用该键并再次付费生成）。
+     * 完成标记在保存结果的事务内写入：事务提交即键已完成，不会出现结果已保存、键仍处理中直到租约过期的窗口；
+     * 租约过期已被其他请求接管时标记失败，事务回滚，避免同一键保存两份结果
+     */
+    private MedicinalDiet runOwned(Long userId, String key, HealthProfile profile, RecommendAction action) {
+        String localKey = userId + ":" + key;
+        CompletableFuture<MedicinalDiet> future = new CompletableFuture<>();
+        inFlight.put(localKey, future);
+        RequestDeadline requestDeadline = RequestDeadline.current();
+        RequestDeadline.unbind();
+        try {
+            MedicinalDiet result = action.run(saved -> {
+                if (idempotencyKeyMapper.markDone(userId, key, nodeId, profile.getProfileId(), saved.getId()) != 1) {
+                    throw new KeyInProgressException("Idempotency-Key已被其他请求接管");
+                }
+            });
+            future.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            idempotencyKeyMapper.markFailed(userId, key, nodeId);
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(localKey, future);
+            if (requestDeadline != null) {
+                RequestDeadline.bind(requestDeadline);
+            }
+        }
+    }
+
+    private void awaitInFlightOrSleep(Long userId, String key, long waitMs) {
+        CompletableFuture<MedicinalDiet> local = inFlight.get(userId + ":" + key);
+        try {
+            if (local != null) {
+                // 同节点：结果就绪后立即返回循环，由数据库状态决定如何返回
+                local.get(waitMs, TimeUnit.MILLISECONDS);
+            } else {
+                Thread.sleep(waitMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KeyInProgressException("等待幂等结果被中断");
+        } catch (ExecutionException | TimeoutException e) {
+            // 失败或超时：回到循环重新读取状态
+        }
+    }
+
+    private static String sha256(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 推荐流程：须在保存结果的事务内回调onSaved（写入幂等键的完成标记），回调抛出异常时事务回滚
+     */
+    @FunctionalInterface
+    public interface RecommendAction {
+        MedicinalDiet run(Consumer<MedicinalDiet> onSaved);
+    }
+
+    /**
+     * 相同幂等键的请求仍在处理中
+     */
+    public static class KeyInProgressException extends RuntimeException {
+        public KeyInProgressException(String message) { super(message); }
+    }
+
+    /**
+     * 幂等键已用于不同的请求内容
+     */
+    public static class KeyMismatchException extends RuntimeException {
+        public KeyMismatchException(String message) { super(message); }
+    }
+}
@@ -2,22 +2,31 @@ package com.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.config.DeepSeekProperties;
+import com.event.RecommendationSavedEvent;
 import com.mapper.HealthProfileMapper;
+import com.mapper.ProfileRecipeMapper;
 import com.mapper.RecipeMapper;
 import com.pojo.HealthProfile;
 import com.pojo.MedicinalDiet;
+import com.pojo.ProfileRecipe;
 import com.util.DeepSeekClient;
+import com.util.RecipeContentHasher;
+import com.util.RequestDeadline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 public class MedicinalDietService {
@@ -29,9 +38,24 @@ public class MedicinalDietService {
     @Autowired
     private RecipeMapper recipeMapper;
 
+    @Autowired
+    private ProfileRecipeMapper profileRecipeMapper;
+
     @Autowired
     private DeepSeekClient deepSeekClient;
 
+    @Autowired
+    private DeepSeekProperties properties;
+
+    @Autowired
+    private SimilarRecipeService similarRecipeService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -41,46 +65,255 @@ public class MedicinalDietService {
     /**
      * 接收用户健康画像，生成并保存药膳推荐（完整流程）
      */
-    @Transactional(rollbackFor = Exception.class)
     public MedicinalDiet recommendAndSave(HealthProfile profile) {
+        return recommendAndSave(profile, 1);
+    }
+
+    /**
+     * 接收用户健康画像，一次生成多款候选药膳并全部保存，返回首推药膳；
+     * 其余候选可通过 {@link #nextAlternative(Long, Long)} 直接从数据库获取。
+     * AI调用（10~30秒）在事务之外进行，数据库连接只在前后两段短事务中占用，
+     * 高并发（尤其虚拟线程模式）下连接池不会被等待AI的请求占满。
+     * 当前线程绑定了请求截止时间时：已超时或已取消则不再调用AI，AI返回后请求已失效则不再写库，
+     * 写库事务的超时取剩余时间（由MyBatis应用为语句超时）
+     * @param alternatives 期望生成的候选数量（超出配置上限时截断）
+     */
+    public MedicinalDiet recommendAndSave(HealthProfile profile, int alternatives) {
+        return recommendAndSave(profile, alternatives, saved -> { });
+    }
+
+    /**
+     * 同 {@link #recommendAndSave(HealthProfile, int)}
+     * @param onSaved 在写库事务内、提交前回调（用于与推荐结果原子地写入幂等完成标记），抛出异常时整个事务回滚
+     */
+    public MedicinalDiet recommendAndSave(HealthProfile profile, int alternatives, Consumer<MedicinalDiet> onSaved) {
+        int count = Math.max(1, Math.min(alternatives, properties.getRecommend().getMaxAlternatives()));
+        RequestDeadline deadline = RequestDeadline.current();
         try {
-            // 1. 保存用户健康画像到数据库
-            healthProfileMapper.insertHealthProfile(profile);
-            log.info("健康画像保存成功，ID:{}", profile.getUserId());
+            if (deadline != null && deadline.isExpired()) {
+                RequestDeadline.recordSkippedCall();
+                deadline.checkActive("生成推荐前");
+            }
+
+            // 1. 单款推荐时优先复用相似画像的药膳（无禁忌冲突）
+            if (count == 1) {
+                MedicinalDiet reused = similarRecipeService.findReusableRecipe(profile);
+                if (reused != null) {
+                    return persistTransaction(deadline).execute(status -> {
+                        MedicinalDiet saved = saveReused(profile, reused);
+                        onSaved.accept(saved);
+                        return saved;
+                    });
+                }
+            }
 
             // 2. 转换健康画像为AI所需的参数格式
             DeepSeekClient.UserHealthInfo userInfo = convertToUserHealthInfo(profile);
 
-            // 3. 调用AI生成药膳推荐
-            DeepSeekClient.MedicinalDiet aiDietResult = deepSeekClient.generateDietRecommendation(userInfo);
-            if (aiDietResult == null) {
+            // 3. 调用AI生成药膳推荐（不占用数据库连接）
+            List<DeepSeekClient.MedicinalDiet> aiDietResults = deepSeekClient.generateDietRecommendations(userInfo, count);
+            if (aiDietResults == null || aiDietResults.isEmpty()) {
                 throw new RuntimeException("AI返回空结果");
             }
 
-            // 4. 验证并转换AI返回的MedicinalDiet
-            MedicinalDiet businessDiet = convertAiDietToBusinessDiet(aiDietResult);
-
-            // 5. 补充业务层MedicinalDiet的额外字段
-            businessDiet.setType(0);
-            businessDiet.setCreateTime(LocalDateTime.now(ZoneId.of("Asia/Shanghai")));
-            businessDiet.setIntro("根据您的健康状况智能推荐的药膳");
-            businessDiet.setIngredients(String.join("、", aiDietResult.getIngredients()));
-
-            // 6. 保存药膳到数据库
-            recipeMapper.insertRecipe(businessDiet);
-            log.info("药膳推荐保存成功，ID:{}", businessDiet.getId());
+            // 4. 验证并转换每款药膳（多款时跳过不完整的候选）
+            List<MedicinalDiet> candidates = new ArrayList<>();
+            for (DeepSeekClient.MedicinalDiet aiDietResult : aiDietResults) {
+                try {
+                    candidates.add(buildBusinessDiet(aiDietResult));
+                } catch (IllegalArgumentException e) {
+                    if (aiDietResults.size() == 1) {
+                        throw e;
+                    }
+                    log.warn("跳过不完整的候选药膳:{}", aiDietResult.getName());
+                }
+            }
+            if (candidates.isEmpty()) {
+                throw new IllegalArgumentException("AI返回的药膳信息不完整");
+            }
 
-            return businessDiet;
+            // 5. 在一个短事务中保存健康画像、药膳及关联
+            return persistTransaction(deadline).execute(status -> {
+                MedicinalDiet saved = saveGenerated(profile, candidates);
+                onSaved.accept(saved);
+                return saved;
+            });
+        } catch (RequestDeadline.DeadlineExceededException e) {
+            log.info("推荐请求已失效，用户ID:{}，{}", profile.getUserId(), e.getMessage());
+            throw e;
         } catch (Exception e) {
-            log.error("药膳推荐生成失败，健康画像ID:{}", profile.getUserId(), e);
+            log.error("药膳推荐生成失败，用户ID:{}", profile.getUserId(), e);
             throw new RuntimeException("药膳推荐生成失败：" + e.getMessage(), e);
         }
     }
 
     /**
-     * 转换：业务层HealthProfile → AI工具类的UserHealthInfo
+     * 写库事务：请求已失效时不再写库，否则事务超时取请求剩余时间
+     * （携带幂等键的请求由IdempotencyService解除截止时间绑定，deadline为空，结果照常保存供客户端重试取回）
+     */
+    private TransactionTemplate persistTransaction(RequestDeadline deadline) {
+        if (deadline == null) {
+            return transactionTemplate;
+        }
+        if (deadline.isExpired()) {
+            RequestDeadline.recordSkippedInsert();
+            deadline.checkActive("保存推荐前");
+        }
+        TransactionTemplate bounded = new TransactionTemplate(transactionTemplate.getTransactionManager(), transactionTemplate);
+        bounded.setTimeout(deadline.remainingSecondsForStatement());
+        return bounded;
+    }
+
+    /**
+     * 保存健康画像及复用的药膳关联
+     */
+    private MedicinalDiet saveReused(HealthProfile profile, MedicinalDiet reused) {
+        healthProfileMapper.insertHealthProfile(profile);
+        log.info("健康画像保存成功，ID:{}", profile.getProfileId());
+        profileRecipeMapper.insertLinks(List.of(ProfileRecipe.builder()
+                .profileId(profile.getProfileId())
+                .recipeId(reused.getId())
+                .rankNo(0)
+                .served(1)
+                .build()));
+        eventPublisher.publishEvent(new RecommendationSavedEvent(profile, reused, List.of()));
+        return reused;
+    }
+
+    /**
+     * 保存健康画像、AI生成的药膳及关联，首款标记为已推送；
+     * 内容指纹已存在的药膳不再重复写入，只关联到已有的规范药膳（为本画像生成的说明保存在关联上）
+     */
+    private MedicinalDiet saveGenerated(HealthProfile profile, List<MedicinalDiet> candidates) {
+        healthProfileMapper.insertHealthProfile(profile);
+        log.info("健康画像保存成功，ID:{}", profile.getProfileId());
+
+        List<ProfileRecipe> links = new ArrayList<>();
+        List<MedicinalDiet> inserted = new ArrayList<>();
+        MedicinalDiet first = null;
+        for (MedicinalDiet businessDiet : candidates) {
+            MedicinalDiet stored = saveCanonical(businessDiet, inserted);
+            boolean linked = links.stream().anyMatch(link -> link.getRecipeId().equals(stored.getId()));
+            if (linked) {
+                continue;
+            }
+            // 复用规范药膳时，为本画像生成的禁忌、功效说明与之不同则保存在关联上
+            ProfileRecipe link = ProfileRecipe.builder()
+                    .profileId(profile.getProfileId())
+                    .recipeId(stored.getId())
+                    .rankNo(links.size())
+                    .served(links.isEmpty() ? 1 : 0)
+                    .taboo(textIfDifferent(businessDiet.getTaboo(), stored.getTaboo()))
+                    .effect(textIfDifferent(businessDiet.getEffect(), stored.getEffect()))
+                    .build();
+            links.add(link);
+            if (first == null) {
+                first = withProfileText(stored, link);
+            }
+        }
+        profileRecipeMapper.insertLinks(links);
+
+        eventPublisher.publishEvent(new RecommendationSavedEvent(profile, first, inserted));
+        return first;
+    }
+
+    /**
+     * 按内容指纹保存药膳：有效的规范药膳已存在时返回该药膳，否则插入（并发插入同一指纹时由唯一索引兜底，回填已有ID）。
+     * 已停用的同款药膳不作为规范药膳（唯一索引只约束有效药膳），新药膳照常写入
+     * @param inserted 实际新写入的药膳会加入该列表
+     */
+    private MedicinalDiet saveCanonical(MedicinalDiet businessDiet, List<MedicinalDiet> inserted) {
+        Long canonicalId = recipeMapper.selectIdByContentHash(businessDiet.getContentHash());
+        if (canonicalId != null) {
+            MedicinalDiet canonical = recipeMapper.selectById(canonicalId);
+            // 查询与读取之间可能已被停用
+            if (canonical != null && Integer.valueOf(1).equals(canonical.getIsValid())) {
+                log.info("药膳与已有药膳重复，复用规范药膳ID:{}", canonicalId);
+                return canonical;
+            }
+        }
+        if (recipeMapper.insertRecipe(businessDiet) == 0) {
+            // 并发写入了同一指纹：主键已回填为规范药膳ID，不算新写入（避免重复加入检索索引）
+            log.info("药膳与并发写入的药膳重复，复用规范药膳ID:{}", businessDiet.getId());
+            MedicinalDiet canonical = recipeMapper.selectById(businessDiet.getId());
+            return canonical != null ? canonical : businessDiet;
+        }
+        inserted.add(businessDiet);
+        log.info("药膳推荐保存成功，ID:{}", businessDiet.getId());
+        return businessDiet;
+    }
+
+    /**
+     * 从数据库返回下一款尚未推送的候选药膳（不调用AI）
+     * @param userId 当前登录用户ID
+     * @param profileId 健康画像ID，为空时取该用户最近一次仍有候选的健康画像
+     * @return 下一款药膳，没有剩余候选时返回null
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public MedicinalDiet nextAlternative(Long userId, Long profileId) {
+        if (profileId == null) {
+            if (userId == null) {
+                return null;
+            }
+            profileId = profileRecipeMapper.selectLatestProfileIdWithUnserved(userId);
+            if (profileId == null) {
+                return null;
+            }
+        } else {
+            HealthProfile profile = healthProfileMapper.selectById(profileId);
+            // 只能读取本人的健康画像（画像的用户ID取自登录令牌）
+            if (profile == null || userId == null || !userId.equals(profile.getUserId())) {
+                return null;
+            }
+        }
+
+        // 并发请求可能抢到同一候选，标记失败则继续取下一款
+        ProfileRecipe link;
+        while ((link = profileRecipeMapper.selectNextUnserved(profileId)) != null) {
+            if (profileRecipeMapper.markServed(link.getId()) == 1) {
+                return withProfileText(recipeMapper.selectById(link.getRecipeId()), link);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 关联上保存了为该画像生成的禁忌、功效说明时，以其覆盖规范药膳的说明
+     */
+    static MedicinalDiet withProfileText(MedicinalDiet recipe, ProfileRecipe link) {
+        if (recipe == null || link == null) {
+            return recipe;
+        }
+        if (link.getTaboo() != null) {
+            recipe.setTaboo(link.getTaboo());
+        }
+        if (link.getEffect() != null) {
+            recipe.setEffect(link.getEffect());
+        }
+        return recipe;
+    }
+
+    private static String textIfDifferent(String generated, String canonical) {
+        return generated == null || generated.equals(canonical) ? null : generated;
+    }
+
+    /**
+     * 转换AI结果并补充业务层MedicinalDiet的额外字段
+     */
+    private MedicinalDiet buildBusinessDiet(DeepSeekClient.MedicinalDiet aiDietResult) {
+        MedicinalDiet businessDiet = convertAiDietToBusinessDiet(aiDietResult);
+        businessDiet.setType(0);
+        businessDiet.setCreateTime(LocalDateTime.now(ZoneId.of("Asia/Shanghai")));
+        businessDiet.setIntro("根据您的健康状况智能推荐的药膳");
+        businessDiet.setIngredients(String.join("、", aiDietResult.getIngredients()));
+        businessDiet.setContentHash(RecipeContentHasher.hash(businessDiet.getName(), businessDiet.getIngredients()));
+        return businessDiet;
+    }
+
+    /**
+     * 转换：业务层HealthProfile → AI工具类的UserHealthInfo（离线回放同样使用）
      */
-    private DeepSeekClient.UserHealthInfo convertToUserHealthInfo(HealthProfile profile) {
+    public DeepSeekClient.UserHealthInfo convertToUserHealthInfo(HealthProfile profile) {
         // 1. 解析症状
         String symptoms = parseJsonTags(profile.getSymptoms());
 
@@ -0,0 +1,117 @@
+package com.service;
+
+import com.config.DeepSeekProperties;
+import com.mapper.HealthProfileMapper;
+import com.pojo.HealthProfile;
+import com.util.DeepSeekClient;
+import com.util.ModelRoutingPolicy;
+import com.util.ModelTierMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 模型档位离线回放：取最近的健康画像，逐个档位向桩服务发送相同请求，
+ * 对比各档位的耗时、token用量、估算成本与解析成功率，并统计路由策略对这批画像的档位分布。
+ * 只读数据库、不写入推荐结果，也不计入线上档位指标
+ */
+@Service
+public class ModelTierReplayJob {
+    private static final Logger log = LoggerFactory.getLogger(ModelTierReplayJob.class);
+
+    @Autowired
+    private HealthProfileMapper healthProfileMapper;
+
+    @Autowired
+    private MedicinalDietService dietService;
+
+    @Autowired
+    private DeepSeekClient deepSeekClient;
+
+    @Autowired
+    private ModelRoutingPolicy routingPolicy;
+
+    @Autowired
+    private DeepSeekProperties properties;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Map<String, Object> lastReport = Map.of();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (properties.getRouting().getReplay().isOnStartup()) {
+            Thread worker = new Thread(this::run, "model-tier-replay");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * 执行一次回放（同一时刻只允许一个实例运行）
+     */
+    public void run() {
+        DeepSeekProperties.Replay cfg = properties.getRouting().getReplay();
+        List<DeepSeekProperties.ModelTier> tiers = properties.getRouting().getTiers();
+        if (!StringUtils.hasText(cfg.getEndpoint()) || tiers.isEmpty()) {
+            log.warn("未配置桩服务地址或模型档位，跳过模型档位回放");
+            return;
+        }
+        if (!running.compareAndSet(false, true)) {
+            log.info("模型档位回放已在运行");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            URI endpoint = URI.create(cfg.getEndpoint());
+            // 独立的HttpClient：回放流量不进入线上连接池，也不计入传输层的交换数与连接复用率
+            HttpClient client = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofSeconds(properties.getHttp().getConnectTimeoutSeconds()))
+                    .build();
+            ModelTierMetrics metrics = new ModelTierMetrics();
+            Map<String, Integer> routed = new LinkedHashMap<>();
+            List<HealthProfile> profiles = healthProfileMapper.selectRecent(cfg.getSampleSize());
+            for (HealthProfile profile : profiles) {
+                DeepSeekClient.UserHealthInfo userInfo = dietService.convertToUserHealthInfo(profile);
+                DeepSeekProperties.ModelTier chosen = routingPolicy.route(userInfo, 1);
+                routed.merge(chosen == null ? "default" : chosen.getName(), 1, Integer::sum);
+                for (DeepSeekProperties.ModelTier tier : tiers) {
+                    try {
+                        deepSeekClient.replay(userInfo, tier, endpoint, client, metrics);
+                    } catch (RuntimeException e) {
+                        log.warn("回放失败，画像ID:{}，档位:{}，{}", profile.getProfileId(), tier.getName(), e.getMessage());
+                    }
+                }
+            }
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("profiles", profiles.size());
+            report.put("routedProfiles", routed);
+            report.put("tiers", metrics.snapshot());
+            lastReport = report;
+            log.info("模型档位回放完成，画像:{}，耗时:{}ms，结果:{}", profiles.size(), System.currentTimeMillis() - start, report);
+        } catch (Exception e) {
+            log.error("模型档位回放失败", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public Map<String, Object> metricsSnapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("running", running.get());
+        snapshot.put("lastReport", lastReport);
+        return snapshot;
+    }
+}
@@ -0,0 +1,129 @@
+package com.service;
+
+import com.config.DeepSeekProperties;
+import com.event.RecipeCollapsedEvent;
+import com.mapper.IdempotencyKeyMapper;
+import com.mapper.ProfileRecipeMapper;
+import com.mapper.RecipeMapper;
+import com.pojo.MedicinalDiet;
+import com.util.RecipeContentHasher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 存量药膳去重回填：按主键分批（keyset）遍历recipe表，计算内容指纹；
+ * 首次出现的指纹写入该行成为规范药膳，重复行的关联（推荐关联、幂等键结果）改指向规范药膳后删除，
+ * 释放其做法、成分等大字段占用的表空间与缓冲池；提交后通知内存索引移除或改指向重复药膳。
+ * 每批只持有batchSize行，内存占用与表大小无关
+ */
+@Service
+public class RecipeDedupBackfillJob {
+    private static final Logger log = LoggerFactory.getLogger(RecipeDedupBackfillJob.class);
+
+    @Autowired
+    private RecipeMapper recipeMapper;
+
+    @Autowired
+    private ProfileRecipeMapper profileRecipeMapper;
+
+    @Autowired
+    private IdempotencyKeyMapper idempotencyKeyMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DeepSeekProperties properties;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong collapsed = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (properties.getDedup().isBackfillOnStartup()) {
+            Thread worker = new Thread(this::run, "recipe-dedup-backfill");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * 执行一次回填（同一时刻只允许一个实例运行）
+     */
+    public void run() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("药膳去重回填已在运行");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            int batchSize = properties.getDedup().getBatchSize();
+            long lastId = 0;
+            List<MedicinalDiet> batch;
+            do {
+                batch = recipeMapper.selectBatchAfter(lastId, batchSize);
+                for (MedicinalDiet recipe : batch) {
+                    transactionTemplate.executeWithoutResult(status -> collapse(recipe));
+                    scanned.incrementAndGet();
+                    lastId = recipe.getId();
+                }
+            } while (batch.size() == batchSize);
+            log.info("药膳去重回填完成，扫描:{}，合并重复:{}，耗时:{}ms",
+                    scanned.get(), collapsed.get(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("药膳去重回填失败", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public Map<String, Object> metricsSnapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("running", running.get());
+        snapshot.put("scanned", scanned.get());
+        snapshot.put("collapsed", collapsed.get());
+        return snapshot;
+    }
+
+    private void collapse(MedicinalDiet recipe) {
+        String hash = RecipeContentHasher.hash(recipe.getName(), recipe.getIngredients());
+        if (hash.equals(recipe.getContentHash())) {
+            return;
+        }
+        Long canonicalId = recipeMapper.selectIdByContentHash(hash);
+        if (canonicalId == null) {
+            try {
+                recipeMapper.updateContentHash(recipe.getId(), hash);
+                return;
+            } catch (DuplicateKeyException e) {
+                // 并发写入了同一指纹（如新推荐），按重复处理
+                canonicalId = recipeMapper.selectIdByContentHash(hash);
+            }
+        }
+        if (canonicalId == null || canonicalId.equals(recipe.getId())) {
+            return;
+        }
+        profileRecipeMapper.repointRecipe(recipe.getId(), canonicalId);
+        idempotencyKeyMapper.repointRecipe(recipe.getId(), canonicalId);
+        recipeMapper.deleteById(recipe.getId());
+        eventPublisher.publishEvent(new RecipeCollapsedEvent(recipe.getId(), canonicalId));
+        collapsed.incrementAndGet();
+    }
+}
@@ -0,0 +1,127 @@
+package com.service;
+
+import com.event.RecipeCollapsedEvent;
+import com.event.RecommendationSavedEvent;
+import com.mapper.RecipeMapper;
+import com.pojo.MedicinalDiet;
+import com.util.RecipeSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 药膳全文检索：启动时从recipe表流式构建倒排索引，新药膳保存提交后增量加入，重复药膳合并提交后移出
+ */
+@Service
+public class RecipeSearchService {
+    private static final Logger log = LoggerFactory.getLogger(RecipeSearchService.class);
+
+    private static final int MAX_LIMIT = 50;
+
+    @Autowired
+    private RecipeMapper recipeMapper;
+
+    private final RecipeSearchIndex index = new RecipeSearchIndex();
+
+    private volatile long buildMillis;
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder queryNanosTotal = new LongAdder();
+
+    /**
+     * 启动后流式构建索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() {
+        long start = System.currentTimeMillis();
+        try {
+            recipeMapper.scanForSearch(context -> addToIndex(context.getResultObject()));
+            buildMillis = System.currentTimeMillis() - start;
+            log.info("药膳检索索引构建完成，文档数:{}，耗时:{}ms", index.docCount(), buildMillis);
+        } catch (Exception e) {
+            log.warn("药膳检索索引构建失败，将仅索引新增药膳：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 新药膳写入提交后加入索引
+     */
+    @TransactionalEventListener
+    public void onRecommendationSaved(RecommendationSavedEvent event) {
+        for (MedicinalDiet recipe : event.getInsertedRecipes()) {
+            addToIndex(recipe);
+        }
+    }
+
+    /**
+     * 重复药膳合并提交后移出索引（规范药膳本身已在索引中），避免已删除的药膳占用检索名额
+     */
+    @TransactionalEventListener
+    public void onRecipeCollapsed(RecipeCollapsedEvent event) {
+        index.remove(event.getDuplicateId());
+    }
+
+    /**
+     * 检索药膳
+     * @param query 检索词，如"山药"、"降压"
+     * @param limit 返回条数上限
+     * @return 按相关度排序的药膳
+     */
+    public List<MedicinalDiet> search(String query, int limit) {
+        if (!StringUtils.hasText(query)) {
+            return Collections.emptyList();
+        }
+        long start = System.nanoTime();
+        long[] ids = index.search(query, Math.max(1, Math.min(limit, MAX_LIMIT)));
+        queries.increment();
+        queryNanosTotal.add(System.nanoTime() - start);
+        if (ids.length == 0) {
+            return Collections.emptyList();
+        }
+
+        List<Long> idList = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            idList.add(id);
+        }
+        Map<Long, MedicinalDiet> byId = new HashMap<>();
+        for (MedicinalDiet recipe : recipeMapper.selectValidByIds(idList)) {
+            byId.put(recipe.getId(), recipe);
+        }
+        List<MedicinalDiet> results = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            MedicinalDiet recipe = byId.get(id);
+            if (recipe != null) {
+                results.add(recipe);
+            }
+        }
+        return results;
+    }
+
+    public Map<String, Object> metricsSnapshot() {
+        long count = queries.sum();
+        Map<String, Object> snapshot = new LinkedHashMap<>(index.stats());
+        snapshot.put("buildMillis", buildMillis);
+        snapshot.put("queries", count);
+        snapshot.put("avgQueryMicros", count == 0 ? 0.0 : queryNanosTotal.sum() / (double) count / 1000.0);
+        return snapshot;
+    }
+
+    private void addToIndex(MedicinalDiet recipe) {
+        if (recipe == null || recipe.getId() == null) {
+            return;
+        }
+        index.add(recipe.getId(), recipe.getName(), recipe.getEffect(), recipe.getIngredients(), recipe.getMethod());
+    }
+}
@@ -0,0 +1,229 @@
+package com.service;
+
+import com.config.DeepSeekProperties;
+import com.event.RecipeCollapsedEvent;
+import com.event.RecommendationSavedEvent;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mapper.ProfileRecipeMapper;
+import com.mapper.RecipeMapper;
+import com.pojo.HealthProfile;
+import com.pojo.MedicinalDiet;
+import com.pojo.RecommendationRecord;
+import com.util.ProfileSimilarityIndex;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 相似画像复用：为新画像查找足够相似的历史画像，在无禁忌冲突时直接复用其药膳，省去一次AI调用
+ */
+@Service
+public class SimilarRecipeService {
+    private static final Logger log = LoggerFactory.getLogger(SimilarRecipeService.class);
+
+    @Autowired
+    private ProfileRecipeMapper profileRecipeMapper;
+
+    @Autowired
+    private RecipeMapper recipeMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DeepSeekProperties properties;
+
+    private ProfileSimilarityIndex index;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder contraindicated = new LongAdder();
+    private final LongAdder queryNanosTotal = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        DeepSeekProperties.Similarity cfg = properties.getSimilarity();
+        index = new ProfileSimilarityIndex(cfg.getJaccardWeight(), cfg.getAgeWeight(), cfg.getAgeScale());
+    }
+
+    /**
+     * 启动后流式加载历史画像及其首推药膳
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        if (!properties.getSimilarity().isEnabled()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            profileRecipeMapper.scanPrimaryRecommendations(context -> {
+                RecommendationRecord record = context.getResultObject();
+                add(record.getAge(), record.getGender(), record.getBloodPressure(), record.getBloodSugar(),
+                        record.getSymptoms(), record.getDiseases(), record.getRecipeId());
+            });
+            log.info("相似画像索引加载完成，画像数:{}，标签数:{}，耗时:{}ms",
+                    index.size(), index.dictionarySize(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("相似画像索引加载失败，将仅使用新增数据：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 查找可复用的药膳。已关联到该用户画像的药膳不参与比较：
+     * 用户原样重新提交（想换一款）时，自己上一次的画像距离为0，否则每次都会拿回同一款药膳
+     * @return 相似画像的药膳；无足够相似的画像或存在禁忌冲突时返回null
+     */
+    public MedicinalDiet findReusableRecipe(HealthProfile profile) {
+        DeepSeekProperties.Similarity cfg = properties.getSimilarity();
+        if (!cfg.isEnabled()) {
+            return null;
+        }
+        List<String> symptoms = parseTagList(profile.getSymptoms());
+        List<String> diseases = parseTagList(profile.getDiseases());
+
+        Set<Long> alreadyLinked = profile.getUserId() == null ? Collections.emptySet()
+                : new HashSet<>(profileRecipeMapper.selectRecipeIdsByUser(profile.getUserId()));
+
+        long start = System.nanoTime();
+        ProfileSimilarityIndex.Match match = index.nearest(
+                valueOf(profile.getAge()), genderOf(profile.getGender()),
+                valueOf(profile.getBloodPressure()), valueOf(profile.getBloodSugar()),
+                symptoms, diseases, cfg.getMaxDistance(), alreadyLinked::contains);
+        queryNanosTotal.add(System.nanoTime() - start);
+
+        if (match == null) {
+            misses.increment();
+            return null;
+        }
+        MedicinalDiet recipe = recipeMapper.selectById(match.getRecipeId());
+        if (recipe == null || !Integer.valueOf(1).equals(recipe.getIsValid())) {
+            misses.increment();
+            return null;
+        }
+        if (hasContraindication(recipe.getTaboo(), profile, symptoms, diseases)) {
+            contraindicated.increment();
+            log.info("相似画像药膳{}与当前画像存在禁忌冲突，不复用", recipe.getId());
+            return null;
+        }
+        hits.increment();
+        log.info("复用相似画像药膳，药膳ID:{}，距离:{}", recipe.getId(), match.getDistance());
+        return recipe;
+    }
+
+    /**
+     * 推荐保存提交后加入索引
+     */
+    @TransactionalEventListener
+    public void onRecommendationSaved(RecommendationSavedEvent event) {
+        if (!properties.getSimilarity().isEnabled()) {
+            return;
+        }
+        HealthProfile profile = event.getProfile();
+        add(profile.getAge(), profile.getGender(), profile.getBloodPressure(), profile.getBloodSugar(),
+                profile.getSymptoms(), profile.getDiseases(), event.getRecommended().getId());
+    }
+
+    /**
+     * 重复药膳合并提交后，指向重复药膳的画像改指向规范药膳，避免命中后按已删除的ID查不到药膳
+     */
+    @TransactionalEventListener
+    public void onRecipeCollapsed(RecipeCollapsedEvent event) {
+        index.remapRecipe(event.getDuplicateId(), event.getCanonicalId());
+    }
+
+    public Map<String, Object> metricsSnapshot() {
+        long queries = hits.sum() + misses.sum() + contraindicated.sum();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("profiles", index.size());
+        snapshot.put("tags", index.dictionarySize());
+        snapshot.put("bitsetWords", index.bitsetWords());
+        snapshot.put("hits", hits.sum());
+        snapshot.put("misses", misses.sum());
+        snapshot.put("contraindicated", contraindicated.sum());
+        snapshot.put("avgQueryMicros", queries == 0 ? 0.0 : queryNanosTotal.sum() / (double) queries / 1000.0);
+        return snapshot;
+    }
+
+    /**
+     * 禁忌冲突：药膳禁忌说明中提及当前画像的疾病、症状或异常血压血糖。
+     * 画像病症按索引的标签规范化，禁忌说明在同一标签词表上做最长匹配后再比对，
+     * 避免原始子串匹配的误判（如禁忌"萎缩性胃炎"不等于画像中的"胃炎"）
+     */
+    boolean hasContraindication(String taboo, HealthProfile profile, List<String> symptoms, List<String> diseases) {
+        if (!StringUtils.hasText(taboo)) {
+            return false;
+        }
+        Set<String> conditions = new LinkedHashSet<>();
+        for (String tag : diseases) {
+            conditions.add(ProfileSimilarityIndex.normalizeTag(tag));
+        }
+        for (String tag : symptoms) {
+            conditions.add(ProfileSimilarityIndex.normalizeTag(tag));
+        }
+        Integer bloodPressure = profile.getBloodPressure();
+        if (bloodPressure != null && bloodPressure == 1) {
+            conditions.add("高血压");
+        } else if (bloodPressure != null && bloodPressure == -1) {
+            conditions.add("低血压");
+        }
+        Integer bloodSugar = profile.getBloodSugar();
+        if (bloodSugar != null && bloodSugar == 1) {
+            conditions.add("高血糖");
+            conditions.add("糖尿病");
+        } else if (bloodSugar != null && bloodSugar == -1) {
+            conditions.add("低血糖");
+        }
+        conditions.remove("");
+        for (String mentioned : index.mentionedTags(taboo, conditions)) {
+            if (conditions.contains(mentioned)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(Integer age, Integer gender, Integer bloodPressure, Integer bloodSugar,
+                     String symptoms, String diseases, Long recipeId) {
+        if (recipeId == null) {
+            return;
+        }
+        index.add(valueOf(age), genderOf(gender), valueOf(bloodPressure), valueOf(bloodSugar),
+                parseTagList(symptoms), parseTagList(diseases), recipeId);
+    }
+
+    private List<String> parseTagList(String json) {
+        if (!StringUtils.hasText(json)) {
+            return Collections.emptyList();
+        }
+        try {
+            List<String> tags = objectMapper.readValue(json, new TypeReference<List<String>>() {});
+            return tags == null ? Collections.emptyList() : tags;
+        } catch (Exception e) {
+            return Collections.emptyList();
+        }
+    }
+
+    private static int valueOf(Integer value) {
+        return value == null ? 0 : value;
+    }
+
+    private static int genderOf(Integer gender) {
+        return gender == null ? -1 : gender;
+    }
+}
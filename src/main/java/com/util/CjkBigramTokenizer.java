@@ -0,0 +1,59 @@
+package com.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 中文二元分词：连续汉字切为相邻二字组（单字成段时保留单字），
+ * 连续字母数字作为一个词（统一小写），其余字符视为分隔符
+ */
+public final class CjkBigramTokenizer {
+
+    private CjkBigramTokenizer() {}
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        int i = 0;
+        int length = text.length();
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isCjk(c)) {
+                int start = i;
+                while (i < length && isCjk(text.charAt(i))) {
+                    i++;
+                }
+                if (i - start == 1) {
+                    tokens.add(text.substring(start, i));
+                } else {
+                    for (int j = start; j + 1 < i; j++) {
+                        tokens.add(text.substring(j, j + 2));
+                    }
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                int start = i;
+                while (i < length && Character.isLetterOrDigit(text.charAt(i)) && !isCjk(text.charAt(i))) {
+                    i++;
+                }
+                tokens.add(text.substring(start, i).toLowerCase());
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 是否为单个汉字（单字查询需要合并含该字的二字组）
+     */
+    public static boolean isSingleHan(String token) {
+        return token.length() == 1 && isCjk(token.charAt(0));
+    }
+
+    private static boolean isCjk(char c) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN;
+    }
+}
@@ -0,0 +1,61 @@
+package com.util;
+
+import com.config.DeepSeekProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * 按健康画像复杂度路由：其他健康状况（高血压、高血糖、疾病史）、症状数与年龄越多越高，
+ * 得分高的画像需要兼顾更多禁忌，交给输出更充分的档位；简单画像用低成本档位
+ */
+@Component
+public class ComplexityRoutingPolicy implements ModelRoutingPolicy {
+
+    private static final int CONDITION_WEIGHT = 2;   // 每项其他健康状况
+    private static final int EXTRA_SYMPTOM_WEIGHT = 1; // 第二个起的每个症状
+    private static final int ELDERLY_AGE = 65;
+    private static final int MIDDLE_AGE = 45;
+    private static final int CHILD_AGE = 12;
+
+    @Autowired
+    private DeepSeekProperties properties;
+
+    @Override
+    public DeepSeekProperties.ModelTier route(DeepSeekClient.UserHealthInfo userInfo, int count) {
+        int score = score(userInfo);
+        DeepSeekProperties.ModelTier selected = null;
+        for (DeepSeekProperties.ModelTier tier : properties.getRouting().getTiers()) {
+            if (tier.getMinScore() <= score && (selected == null || tier.getMinScore() > selected.getMinScore())) {
+                selected = tier;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 复杂度得分（非负整数）
+     */
+    public int score(DeepSeekClient.UserHealthInfo userInfo) {
+        int score = countItems(userInfo.getOtherConditions()) * CONDITION_WEIGHT;
+        score += Math.max(0, countItems(userInfo.getSymptom()) - 1) * EXTRA_SYMPTOM_WEIGHT;
+        int age = userInfo.getAge();
+        if (age >= ELDERLY_AGE || (age > 0 && age < CHILD_AGE)) {
+            score += 2;
+        } else if (age >= MIDDLE_AGE) {
+            score += 1;
+        }
+        return score;
+    }
+
+    /**
+     * 统计"、"分隔的条目数（"无"及解析异常的占位不计）
+     */
+    private int countItems(String joined) {
+        if (joined == null || joined.isBlank() || "无".equals(joined) || "无（格式异常）".equals(joined)) {
+            return 0;
+        }
+        return (int) Arrays.stream(joined.split("、")).filter(item -> !item.isBlank()).count();
+    }
+}
@@ -5,15 +5,29 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
-
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import com.config.DeepSeekProperties;
 import com.google.gson.Gson;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 /**
@@ -25,14 +39,30 @@ public class DeepSeekClient {
 
     private final String API_KEY;
     private final String API_URL;
-    private final HttpClient httpClient;
     private final Gson gson = new Gson();
 
+    @Autowired
+    private DeepSeekTransport transport;
+
+    @Autowired
+    private DeepSeekProperties properties;
+
+    @Autowired
+    private ModelRoutingPolicy routingPolicy;
+
+    private HedgePolicy hedgePolicy;
+
+    private final ModelTierMetrics tierMetrics = new ModelTierMetrics();
+
     // 常量定义
-    private static final String MODEL = "deepseek-chat";
-    private static final double TEMPERATURE = 0.5;
-    private static final int MAX_TOKENS = 1500;
-    private static final int HTTP_TIMEOUT_SECONDS = 30;  // 超时时间30秒
+    private static final int MAX_TOKENS_LIMIT = 8000;    // 多款推荐时的输出token上限
+    // 未启用分级路由时的默认档位（deepseek-chat，temperature 0.5，1500 tokens，超时30秒）
+    private static final DeepSeekProperties.ModelTier DEFAULT_TIER = new DeepSeekProperties.ModelTier();
+    // 提示词变体：追加在基础要求之后的说明（standard不追加）
+    private static final Map<String, String> PROMPT_VARIANTS = Map.of(
+            "concise", "4. 制作步骤不超过5步，各字段说明简短。",
+            "detailed", "4. 逐一考虑\"其他状况\"中的每一项：避免选用与之冲突的食材，在taboo中写明对应禁忌，在reason中说明如何兼顾。"
+    );
 
     // 构造方法初始化（替代静态初始化）
     public DeepSeekClient() {
@@ -57,11 +87,17 @@ public class DeepSeekClient {
         } catch (Exception e) {
             throw new RuntimeException("加载AI配置失败", e);
         }
+    }
 
-        // 初始化HttpClient（单例复用，带超时设置）
-        httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(HTTP_TIMEOUT_SECONDS))
-                .build();
+    /**
+     * 登记连接预热目标（HttpClient由DeepSeekTransport统一管理），初始化对冲策略
+     */
+    @PostConstruct
+    public void init() {
+        transport.registerWarmupTarget(URI.create(API_URL));
+        DeepSeekProperties.Hedge hedge = properties.getHedge();
+        hedgePolicy = new HedgePolicy(hedge.getPercentile(), hedge.getWindow(), hedge.getMinSamples(),
+                hedge.getMinDelayMs(), hedge.getBudgetRatio(), hedge.getMaxBurst());
     }
 
     /**
@@ -73,22 +109,98 @@ public class DeepSeekClient {
         // 验证用户信息
         validateUserHealthInfo(userInfo);
 
+        // 按画像复杂度选择模型档位
+        DeepSeekProperties.ModelTier tier = resolveTier(userInfo, 1);
+
         // 构建提示词
-        String prompt = buildPrompt(userInfo);
+        String prompt = buildPrompt(userInfo, tier.getPromptVariant());
 
         // 构建AI请求
         List<Message> messages = new ArrayList<>();
         messages.add(new Message("user", prompt));
         ChatRequest requestBody = new ChatRequest(
-                MODEL,
+                tier.getModel(),
                 messages,
-                TEMPERATURE,
-                MAX_TOKENS
+                tier.getTemperature(),
+                tier.getMaxTokens()
         );
 
         // 发送请求并解析响应
-        String response = sendRequest(requestBody);
-        return parseDietResponse(response);
+        return execute(requestBody, tier, this::parseDietResponse);
+    }
+
+    /**
+     * 一次生成多款差异化的药膳推荐（共享同一份提示词上下文，摊薄单次调用成本）
+     * @param userInfo 用户健康信息封装
+     * @param count 期望的药膳数量
+     * @return 解析后的药膳列表（至少1款，已剔除不完整或重名的结果）
+     */
+    public List<MedicinalDiet> generateDietRecommendations(UserHealthInfo userInfo, int count) {
+        if (count <= 1) {
+            return List.of(generateDietRecommendation(userInfo));
+        }
+        validateUserHealthInfo(userInfo);
+        DeepSeekProperties.ModelTier tier = resolveTier(userInfo, count);
+
+        List<Message> messages = new ArrayList<>();
+        messages.add(new Message("user", buildMultiPrompt(userInfo, count, tier.getPromptVariant())));
+        ChatRequest requestBody = new ChatRequest(
+                tier.getModel(),
+                messages,
+                tier.getTemperature(),
+                Math.min(tier.getMaxTokens() * count, MAX_TOKENS_LIMIT)
+        );
+
+        return execute(requestBody, tier, this::parseDietListResponse);
+    }
+
+    /**
+     * 离线回放：以指定档位向桩服务发送单款推荐请求，结果计入调用方提供的统计
+     * （经调用方提供的HttpClient发送，不经DeepSeekTransport，不影响线上传输层、档位指标与对冲耗时样本）
+     * @param endpoint 桩服务地址
+     * @param client 回放专用的HttpClient
+     * @return 解析后的药膳对象
+     */
+    public MedicinalDiet replay(UserHealthInfo userInfo, DeepSeekProperties.ModelTier tier, URI endpoint,
+                               HttpClient client, ModelTierMetrics metrics) {
+        validateUserHealthInfo(userInfo);
+        List<Message> messages = new ArrayList<>();
+        messages.add(new Message("user", buildPrompt(userInfo, tier.getPromptVariant())));
+        ChatRequest requestBody = new ChatRequest(tier.getModel(), messages, tier.getTemperature(), tier.getMaxTokens());
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(endpoint)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(tier.getTimeoutSeconds()))
+                .POST(BodyPublishers.ofString(gson.toJson(requestBody)))
+                .build();
+
+        long start = System.nanoTime();
+        try {
+            ChatResponse chatResponse = readResponse(client.send(request, HttpResponse.BodyHandlers.ofString()));
+            if (chatResponse.getUsage() != null) {
+                metrics.recordUsage(tier, chatResponse.getUsage().getPromptTokens(), chatResponse.getUsage().getCompletionTokens());
+            }
+            MedicinalDiet diet = parseDietResponse(chatResponse.getChoices().get(0).getMessage().getContent());
+            metrics.record(tier, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), true);
+            return diet;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("回放请求被中断", e);
+        } catch (Exception e) {
+            metrics.record(tier, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), false);
+            throw e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException("回放请求异常: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 选择模型档位：未启用路由或策略未选出档位时使用默认档位
+     */
+    private DeepSeekProperties.ModelTier resolveTier(UserHealthInfo userInfo, int count) {
+        if (!properties.getRouting().isEnabled()) {
+            return DEFAULT_TIER;
+        }
+        DeepSeekProperties.ModelTier tier = routingPolicy.route(userInfo, count);
+        return tier != null ? tier : DEFAULT_TIER;
     }
 
     /**
@@ -110,7 +222,7 @@ public class DeepSeekClient {
      * 构建AI提示词
      */
     // 在DeepSeekClient的buildPrompt方法中更新提示词
-    private String buildPrompt(UserHealthInfo userInfo) {
+    private String buildPrompt(UserHealthInfo userInfo, String variant) {
         return String.format("""
         请根据以下用户健康信息，推荐1款适合的药膳：
         症状：%s
@@ -129,14 +241,94 @@ public class DeepSeekClient {
            - tags: 标签列表（数组，如["健脾", "益气"]）
         2. 所有字段不可为null，内容简洁准确，用中文描述。
         3. 禁止返回任何非JSON内容（如解释、备注）。
+        %s
+        """,
+                userInfo.getSymptom(),
+                userInfo.getGender(),
+                userInfo.getAge() > 0 ? userInfo.getAge() : "未提供",
+                userInfo.getOtherConditions(),
+                PROMPT_VARIANTS.getOrDefault(variant, "")
+        );
+    }
+
+    /**
+     * 构建多款推荐的AI提示词
+     */
+    private String buildMultiPrompt(UserHealthInfo userInfo, int count, String variant) {
+        return String.format("""
+        请根据以下用户健康信息，推荐%d款适合的药膳，各款药膳的主要食材与功效侧重应明显不同：
+        症状：%s
+        性别：%s
+        年龄：%s
+        其他状况：%s
+
+        要求：
+        1. 必须返回纯JSON数组（无任何前置/后置文本），数组中每个元素包含以下字段：
+           - name: 药膳名称（字符串，各款不得重复）
+           - ingredients: 制作成分（数组，如["芹菜200g", "红枣5颗"]）
+           - steps: 制作步骤（数组，如["步骤1...", "步骤2..."]）
+           - reason: 适合原因（字符串，说明与症状的关联，对应功效）
+           - taboo: 禁忌说明（字符串，如"孕妇慎用"）
+           - suitableTime: 适宜食用时间（字符串，如"早餐"、"晚餐"）
+           - tags: 标签列表（数组，如["健脾", "益气"]）
+        2. 所有字段不可为null，内容简洁准确，用中文描述。
+        3. 禁止返回任何非JSON内容（如解释、备注）。
+        %s
         """,
+                count,
                 userInfo.getSymptom(),
                 userInfo.getGender(),
                 userInfo.getAge() > 0 ? userInfo.getAge() : "未提供",
-                userInfo.getOtherConditions()
+                userInfo.getOtherConditions(),
+                PROMPT_VARIANTS.getOrDefault(variant, "")
         );
     }
 
+    /**
+     * 解析AI响应为MedicinalDiet列表（模型仅返回单个对象时按单款处理）
+     */
+    private List<MedicinalDiet> parseDietListResponse(String response) {
+        if (response == null || response.trim().isEmpty()) {
+            throw new RuntimeException("AI返回空响应");
+        }
+
+        int arrayStart = response.indexOf('[');
+        int objectStart = response.indexOf('{');
+        if (arrayStart == -1 || (objectStart != -1 && objectStart < arrayStart)) {
+            return List.of(parseDietResponse(response));
+        }
+
+        try {
+            int endIdx = response.lastIndexOf(']');
+            if (endIdx <= arrayStart) {
+                throw new RuntimeException("AI响应不包含有效的JSON数组");
+            }
+
+            MedicinalDiet[] parsed = gson.fromJson(response.substring(arrayStart, endIdx + 1), MedicinalDiet[].class);
+            List<MedicinalDiet> diets = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            for (MedicinalDiet diet : parsed == null ? new MedicinalDiet[0] : parsed) {
+                try {
+                    validateMedicinalDiet(diet);
+                } catch (RuntimeException e) {
+                    log.warn("丢弃不完整的药膳结果：{}", e.getMessage());
+                    continue;
+                }
+                if (!names.contains(diet.getName().trim())) {
+                    names.add(diet.getName().trim());
+                    diets.add(diet);
+                }
+            }
+            if (diets.isEmpty()) {
+                throw new RuntimeException("AI返回的药膳列表中没有有效结果");
+            }
+            return diets;
+        } catch (Exception e) {
+            log.error("解析AI响应失败, 原始响应: {}", maskSensitiveInfo(response), e);
+            throw new RuntimeException("解析AI响应失败: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * 解析AI响应为MedicinalDiet对象
      */
@@ -189,40 +381,260 @@ public class DeepSeekClient {
     }
 
     /**
-     * 发送HTTP请求到AI接口
+     * 发送请求并解析：启用对冲时走对冲路径；当前线程绑定了请求截止时间时，
+     * 按剩余时间设置请求超时，并在请求取消时中止进行中的交换；否则同步发送
      */
-    private String sendRequest(ChatRequest requestBody) {
+    private <T> T execute(ChatRequest requestBody, DeepSeekProperties.ModelTier tier, Function<String, T> parser) {
+        RequestDeadline deadline = RequestDeadline.current();
+        if (deadline != null && deadline.isExpired()) {
+            RequestDeadline.recordSkippedCall();
+            deadline.checkActive("调用AI前");
+        }
+        HttpRequest request = buildHttpRequest(requestBody, requestTimeout(deadline, tier));
+        long start = System.nanoTime();
         try {
-            String requestBodyJson = gson.toJson(requestBody);
-
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(API_URL))
-                    .header("Content-Type", "application/json")
-                    .header("Authorization", "Bearer " + API_KEY)
-                    .timeout(Duration.ofSeconds(HTTP_TIMEOUT_SECONDS))  // 设置请求超时
-                    .POST(BodyPublishers.ofString(requestBodyJson))
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 200) {
-                ChatResponse chatResponse = gson.fromJson(response.body(), ChatResponse.class);
-                if (chatResponse.getChoices() == null || chatResponse.getChoices().isEmpty()) {
-                    throw new RuntimeException("AI返回空结果");
-                }
-                return chatResponse.getChoices().get(0).getMessage().getContent();
+            T result;
+            if (properties.getHedge().isEnabled()) {
+                result = executeHedged(request, parser, deadline, tier);
+            } else if (deadline == null) {
+                result = parser.apply(sendRequest(request, tier));
             } else {
-                String errorMsg = String.format("AI请求失败，状态码: %d, 响应: %s",
-                        response.statusCode(), maskSensitiveInfo(response.body()));
-                log.error(errorMsg);
-                throw new RuntimeException(errorMsg);
+                result = parser.apply(sendCancellable(request, deadline, tier));
+            }
+            tierMetrics.record(tier, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), true);
+            return result;
+        } catch (RequestDeadline.DeadlineExceededException e) {
+            // 请求方放弃，不计为档位失败
+            throw e;
+        } catch (RuntimeException e) {
+            tierMetrics.record(tier, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), false);
+            throw e;
+        }
+    }
+
+    /**
+     * 出站请求超时：档位超时与请求剩余时间取较小值
+     */
+    private Duration requestTimeout(RequestDeadline deadline, DeepSeekProperties.ModelTier tier) {
+        long timeoutMs = TimeUnit.SECONDS.toMillis(tier.getTimeoutSeconds());
+        if (deadline != null) {
+            timeoutMs = Math.max(1, Math.min(timeoutMs, deadline.remainingMillis()));
+        }
+        return Duration.ofMillis(timeoutMs);
+    }
+
+    /**
+     * 对冲执行：主请求在近期分位耗时内未返回且预算允许时，发出第二个相同请求；
+     * 以先解析出有效结果的一路为准，另一路立即取消
+     */
+    private <T> T executeHedged(HttpRequest request, Function<String, T> parser, RequestDeadline deadline,
+                                DeepSeekProperties.ModelTier tier) {
+        long hedgeDelayMs = hedgePolicy.onCall();
+        long callStart = System.nanoTime();
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        List<CompletableFuture<HttpResponse<String>>> exchanges = new CopyOnWriteArrayList<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        // 请求取消时结束等待，finally中随即中止各路交换
+        Runnable registration = deadline == null ? () -> { }
+                : deadline.onCancel(() -> {
+                    if (winner.cancel(true)) {
+                        RequestDeadline.recordCancelledExchange();
+                    }
+                });
+
+        launchAttempt(request, parser, tier, winner, exchanges, outstanding, callStart, false);
+        try {
+            if (hedgeDelayMs > 0) {
+                try {
+                    return winner.get(hedgeDelayMs, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (hedgePolicy.tryAcquireHedge()) {
+                        log.info("AI请求{}ms未返回，发出对冲请求", hedgeDelayMs);
+                        outstanding.incrementAndGet();
+                        launchAttempt(request, parser, tier, winner, exchanges, outstanding, callStart, true);
+                    }
+                }
+            }
+            return winner.get();
+        } catch (CancellationException e) {
+            throw new RequestDeadline.DeadlineExceededException("请求已取消：AI调用");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("AI请求被中断", e);
+        } catch (ExecutionException e) {
+            throw translateFailure(e.getCause(), deadline);
+        } finally {
+            registration.run();
+            // 取消落败或未完成的交换
+            for (CompletableFuture<HttpResponse<String>> exchange : exchanges) {
+                exchange.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * 发出一路请求；先得到有效结果的一路完成winner
+     * @param callStart 主请求发出时刻：无论哪一路胜出都按调用整体耗时计入样本。
+     *                  若按胜出一路自身计时，对冲胜出时记录的是对冲请求的正常耗时，
+     *                  慢的主请求被排除在样本之外，学到的分位数会持续偏低、对冲越来越频繁
+     */
+    private <T> void launchAttempt(HttpRequest request, Function<String, T> parser, DeepSeekProperties.ModelTier tier,
+                                   CompletableFuture<T> winner,
+                                   List<CompletableFuture<HttpResponse<String>>> exchanges,
+                                   AtomicInteger outstanding, long callStart, boolean hedge) {
+        CompletableFuture<HttpResponse<String>> exchange = transport.sendAsync(request);
+        exchanges.add(exchange);
+        exchange.thenApply(response -> parser.apply(extractContent(response, tier)))
+                .whenComplete((value, error) -> {
+                    if (error == null) {
+                        if (winner.complete(value)) {
+                            hedgePolicy.recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - callStart), hedge);
+                        }
+                    } else if (outstanding.decrementAndGet() == 0) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        // 各路均失败：按调用整体计一个删失样本（落败一路被取消时不计）
+                        if (winner.completeExceptionally(cause)) {
+                            recordFailedLatency(request, cause, callStart);
+                        }
+                    } else if (!winner.isDone()) {
+                        log.warn("{}请求失败，等待另一路结果：{}", hedge ? "对冲" : "主", error.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * 带取消的发送：请求被取消时中止进行中的交换，不再等待AI返回
+     */
+    private String sendCancellable(HttpRequest request, RequestDeadline deadline, DeepSeekProperties.ModelTier tier) {
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<String>> exchange = transport.sendAsync(request);
+        Runnable registration = deadline.onCancel(() -> {
+            if (exchange.cancel(true)) {
+                RequestDeadline.recordCancelledExchange();
             }
+        });
+        try {
+            String content = extractContent(exchange.get(), tier);
+            hedgePolicy.recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), false);
+            return content;
+        } catch (CancellationException e) {
+            throw new RequestDeadline.DeadlineExceededException("请求已取消：AI调用");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("AI请求被中断", e);
+        } catch (ExecutionException e) {
+            // 交换被中止时HttpClient以CancellationException结束返回的future，get()将其包装为ExecutionException
+            if (deadline.isCancelled()) {
+                throw new RequestDeadline.DeadlineExceededException("请求已取消：AI调用");
+            }
+            log.error("发送AI请求异常", e.getCause());
+            recordFailedLatency(request, e.getCause(), start);
+            throw translateFailure(e.getCause(), deadline);
+        } catch (RuntimeException e) {
+            // 非200或响应解析失败
+            recordFailedLatency(request, e, start);
+            throw e;
+        } finally {
+            registration.run();
+        }
+    }
+
+    /**
+     * 失败调用计入对冲耗时样本：超时按请求超时值计，其他失败按已耗时计
+     */
+    private void recordFailedLatency(HttpRequest request, Throwable cause, long startNanos) {
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        long latencyMs = cause instanceof HttpTimeoutException
+                ? request.timeout().map(Duration::toMillis).orElse(elapsedMs) : elapsedMs;
+        hedgePolicy.recordCensored(latencyMs);
+    }
+
+    /**
+     * 异步交换失败原因转换：因截止时间耗尽导致的超时单独标识
+     */
+    private RuntimeException translateFailure(Throwable cause, RequestDeadline deadline) {
+        if (cause instanceof HttpTimeoutException && deadline != null && deadline.isExpired()) {
+            return new RequestDeadline.DeadlineExceededException("请求已超时：AI调用");
+        }
+        return cause instanceof RuntimeException ? (RuntimeException) cause
+                : new RuntimeException("发送AI请求异常: " + cause.getMessage(), cause);
+    }
+
+    /**
+     * 构建AI接口HTTP请求
+     */
+    private HttpRequest buildHttpRequest(ChatRequest requestBody, Duration timeout) {
+        String requestBodyJson = gson.toJson(requestBody);
+        return HttpRequest.newBuilder()
+                .uri(URI.create(API_URL))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + API_KEY)
+                .timeout(timeout)  // 设置请求超时
+                .POST(BodyPublishers.ofString(requestBodyJson))
+                .build();
+    }
+
+    /**
+     * 发送HTTP请求到AI接口
+     */
+    private String sendRequest(HttpRequest request, DeepSeekProperties.ModelTier tier) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = transport.send(request);
+            String content = extractContent(response, tier);
+            hedgePolicy.recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), false);
+            return content;
         } catch (Exception e) {
             log.error("发送AI请求异常", e);
+            recordFailedLatency(request, e, start);
             throw new RuntimeException("发送AI请求异常: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * 从HTTP响应中取出模型回复内容，并按档位记录token用量
+     */
+    private String extractContent(HttpResponse<String> response, DeepSeekProperties.ModelTier tier) {
+        ChatResponse chatResponse = readResponse(response);
+        if (chatResponse.getUsage() != null) {
+            tierMetrics.recordUsage(tier, chatResponse.getUsage().getPromptTokens(), chatResponse.getUsage().getCompletionTokens());
+        }
+        return chatResponse.getChoices().get(0).getMessage().getContent();
+    }
+
+    /**
+     * 解析HTTP响应体（非200或无结果时抛出异常）
+     */
+    private ChatResponse readResponse(HttpResponse<String> response) {
+        if (response.statusCode() == 200) {
+            ChatResponse chatResponse = gson.fromJson(response.body(), ChatResponse.class);
+            if (chatResponse.getChoices() == null || chatResponse.getChoices().isEmpty()) {
+                throw new RuntimeException("AI返回空结果");
+            }
+            return chatResponse;
+        } else {
+            String errorMsg = String.format("AI请求失败，状态码: %d, 响应: %s",
+                    response.statusCode(), maskSensitiveInfo(response.body()));
+            log.error(errorMsg);
+            throw new RuntimeException(errorMsg);
+        }
+    }
+
+    /**
+     * 对冲指标快照
+     */
+    public Map<String, Object> hedgeMetricsSnapshot() {
+        return hedgePolicy.metricsSnapshot();
+    }
+
+    /**
+     * 各模型档位的调用指标快照
+     */
+    public Map<String, Object> tierMetricsSnapshot() {
+        return tierMetrics.snapshot();
+    }
+
     /**
      * 敏感信息脱敏
      */
@@ -333,13 +745,23 @@ public class DeepSeekClient {
      */
     private static class ChatResponse {
         private List<Choice> choices;
+        private Usage usage;
 
         public List<Choice> getChoices() { return choices; }
+        public Usage getUsage() { return usage; }
 
         private static class Choice {
             private Message message;
 
             public Message getMessage() { return message; }
         }
+
+        private static class Usage {
+            private long prompt_tokens;
+            private long completion_tokens;
+
+            public long getPromptTokens() { return prompt_tokens; }
+            public long getCompletionTokens() { return completion_tokens; }
+        }
     }
 }
@@ -0,0 +1,473 @@
+package com.util;
+
+import com.config.DeepSeekProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.LongConsumer;
+
+/**
+ * DeepSeek出站HTTP传输组件：统一管理HttpClient的协议版本、执行器、连接预热与连接级指标
+ */
+@Component
+public class DeepSeekTransport {
+    private static final Logger log = LoggerFactory.getLogger(DeepSeekTransport.class);
+
+    private static final String KEEPALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+
+    @Autowired
+    private DeepSeekProperties properties;
+
+    private HttpClient httpClient;
+    private ExecutorService executor;
+    private volatile URI warmupTarget;
+    private volatile long lastActivityNanos = System.nanoTime();
+
+    // 连接级指标（仅TLS连接可观测：每次新建SSLEngine即一次新连接握手）
+    private final LongAdder requests = new LongAdder();          // 业务交换数，不含预热请求
+    private final LongAdder newConnections = new LongAdder();    // 业务请求新建的连接
+    private final LongAdder warmupConnections = new LongAdder(); // 预热期间新建的连接
+    private final LongAdder warmups = new LongAdder();
+    private final AtomicInteger warmupsInFlight = new AtomicInteger();
+    private final LongAdder handshakeSamples = new LongAdder();
+    private final LongAdder handshakeNanosTotal = new LongAdder();
+
+    @PostConstruct
+    public void init() throws NoSuchAlgorithmException {
+        init(SSLContext.getDefault());
+    }
+
+    /**
+     * 以指定的SSLContext初始化（测试中用于信任本地TLS桩服务的自签证书）
+     */
+    void init(SSLContext sslContext) {
+        DeepSeekProperties.Http cfg = properties.getHttp();
+
+        // JDK连接池的空闲保活时间是JVM全局的系统属性，且只在连接池类加载时读取一次，
+        // 因此由启动参数设置（见pom.xml中的jvmArguments），这里只核对是否与配置一致
+        String keepAlive = System.getProperty(KEEPALIVE_PROPERTY);
+        if (!String.valueOf(cfg.getKeepAliveSeconds()).equals(keepAlive)) {
+            log.warn("启动参数中的-D{}为{}，与配置的保活时间{}秒不一致，连接池按启动参数（未设置时为JDK默认值）回收空闲连接",
+                    KEEPALIVE_PROPERTY, keepAlive, cfg.getKeepAliveSeconds());
+        }
+
+        executor = createExecutor(cfg);
+        httpClient = HttpClient.newBuilder()
+                .version(parseVersion(cfg.getVersion()))
+                .executor(executor)
+                .connectTimeout(Duration.ofSeconds(cfg.getConnectTimeoutSeconds()))
+                .sslContext(new CountingSSLContext(sslContext, this::onNewConnection, this::onHandshake))
+                .build();
+        log.info("DeepSeek传输层初始化完成，协议:{}，执行器:{}", httpClient.version(), cfg.getExecutor());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 登记预热目标（取API地址的scheme://host:port）
+     */
+    public void registerWarmupTarget(URI apiUri) {
+        int port = apiUri.getPort();
+        warmupTarget = URI.create(apiUri.getScheme() + "://" + apiUri.getHost() + (port > 0 ? ":" + port : "") + "/");
+    }
+
+    /**
+     * 同步发送请求
+     */
+    public HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        requests.increment();
+        markActivity();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * 异步发送请求（取消返回的future即中止该次交换）
+     */
+    public CompletableFuture<HttpResponse<String>> sendAsync(HttpRequest request) {
+        requests.increment();
+        markActivity();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * 启动完成后预热连接，避免首个用户请求承担TCP+TLS握手
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (properties.getHttp().isWarmupEnabled()) {
+            warmUp();
+        }
+    }
+
+    /**
+     * 定期检查：空闲超过阈值（连接可能已被回收）时重新预热
+     */
+    @Scheduled(fixedDelayString = "${deepseek.http.idle-check-interval-ms:30000}")
+    public void rewarmIfIdle() {
+        DeepSeekProperties.Http cfg = properties.getHttp();
+        if (!cfg.isWarmupEnabled()) {
+            return;
+        }
+        long idleMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastActivityNanos);
+        if (idleMs >= cfg.getIdleThresholdMs()) {
+            log.info("DeepSeek连接已空闲{}ms，重新预热", idleMs);
+            warmUp();
+        }
+    }
+
+    /**
+     * 向API主机发送轻量HEAD请求建立连接（响应状态无关紧要，只为完成握手并进入连接池）
+     */
+    public void warmUp() {
+        URI target = warmupTarget;
+        if (target == null) {
+            return;
+        }
+        DeepSeekProperties.Http cfg = properties.getHttp();
+        int count = Math.max(1, cfg.getWarmupConnections());
+        List<CompletableFuture<Void>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            futures.add(warmUpOnce(target, Duration.ofSeconds(cfg.getConnectTimeoutSeconds())));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    private CompletableFuture<Void> warmUpOnce(URI target, Duration timeout) {
+        HttpRequest request = HttpRequest.newBuilder(target)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .timeout(timeout)
+                .build();
+        warmupsInFlight.incrementAndGet();
+        markActivity();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, e) -> {
+                    warmupsInFlight.decrementAndGet();
+                    warmups.increment();
+                    if (e != null) {
+                        log.warn("DeepSeek连接预热失败：{}", e.getMessage());
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * 连接级指标快照
+     */
+    public Map<String, Object> metricsSnapshot() {
+        long total = requests.sum();
+        long opened = newConnections.sum();
+        long samples = handshakeSamples.sum();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("httpVersion", httpClient.version().name());
+        snapshot.put("executor", properties.getHttp().getExecutor());
+        snapshot.put("exchanges", total);  // 不含预热请求
+        snapshot.put("warmups", warmups.sum());
+        snapshot.put("tlsConnectionsOpened", opened + warmupConnections.sum());
+        snapshot.put("warmupConnectionsOpened", warmupConnections.sum());
+        // 复用率只统计业务请求：预热的HEAD请求本就为建连而发，计入会把复用率拉低
+        snapshot.put("connectionReuseRatio", total == 0 ? 0.0 : Math.max(0.0, 1.0 - (double) opened / total));
+        snapshot.put("avgHandshakeMillis", samples == 0 ? 0.0
+                : handshakeNanosTotal.sum() / (double) samples / 1_000_000.0);
+        return snapshot;
+    }
+
+    private void markActivity() {
+        lastActivityNanos = System.nanoTime();
+    }
+
+    /**
+     * 新建连接的归属：有预热请求在途时记为预热建连（预热只在启动和空闲时发起，与业务请求并发的情况很少）
+     */
+    private void onNewConnection() {
+        if (warmupsInFlight.get() > 0) {
+            warmupConnections.increment();
+        } else {
+            newConnections.increment();
+        }
+    }
+
+    private void onHandshake(long nanos) {
+        handshakeSamples.increment();
+        handshakeNanosTotal.add(nanos);
+    }
+
+    private static HttpClient.Version parseVersion(String version) {
+        return "HTTP_1_1".equalsIgnoreCase(version) ? HttpClient.Version.HTTP_1_1 : HttpClient.Version.HTTP_2;
+    }
+
+    private static ExecutorService createExecutor(DeepSeekProperties.Http cfg) {
+        if ("virtual".equalsIgnoreCase(cfg.getExecutor())) {
+            try {
+                // 以反射调用，保证在JDK17下仍可编译运行
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log.warn("当前JDK({})不支持虚拟线程，回退为有界线程池", Runtime.version().feature());
+            }
+        }
+        AtomicInteger seq = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread t = new Thread(r, "deepseek-http-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        // 队列满时拒绝（默认AbortPolicy），由HttpClient将该次交换置为失败；
+        // 不能用CallerRunsPolicy：提交方可能是HttpClient的选择器线程，在其上执行任务会阻塞所有连接的I/O
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                cfg.getExecutorThreads(), cfg.getExecutorThreads(),
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(cfg.getExecutorQueueCapacity()),
+                threadFactory);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    // ------------------------------ 连接计数用SSLContext包装 ------------------------------
+
+    /**
+     * 包装默认SSLContext：HttpClient每建立一条TLS连接都会创建一个SSLEngine，借此统计新建连接数，
+     * 并在SSLEngine上逐连接测量握手耗时
+     */
+    private static final class CountingSSLContext extends SSLContext {
+        CountingSSLContext(SSLContext delegate, Runnable onNewEngine, LongConsumer onHandshake) {
+            super(new CountingSpi(delegate, onNewEngine, onHandshake), delegate.getProvider(), delegate.getProtocol());
+        }
+    }
+
+    private static final class CountingSpi extends SSLContextSpi {
+        private final SSLContext delegate;
+        private final Runnable onNewEngine;
+        private final LongConsumer onHandshake;
+
+        CountingSpi(SSLContext delegate, Runnable onNewEngine, LongConsumer onHandshake) {
+            this.delegate = delegate;
+            this.onNewEngine = onNewEngine;
+            this.onHandshake = onHandshake;
+        }
+
+        @Override
+        protected void engineInit(KeyManager[] km, TrustManager[] tm, SecureRandom sr) throws KeyManagementException {
+            delegate.init(km, tm, sr);
+        }
+
+        @Override
+        protected SSLSocketFactory engineGetSocketFactory() { return delegate.getSocketFactory(); }
+
+        @Override
+        protected SSLServerSocketFactory engineGetServerSocketFactory() { return delegate.getServerSocketFactory(); }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine() {
+            onNewEngine.run();
+            return new TimedSSLEngine(delegate.createSSLEngine(), onHandshake);
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine(String host, int port) {
+            onNewEngine.run();
+            return new TimedSSLEngine(delegate.createSSLEngine(host, port), onHandshake);
+        }
+
+        @Override
+        protected SSLSessionContext engineGetServerSessionContext() { return delegate.getServerSessionContext(); }
+
+        @Override
+        protected SSLSessionContext engineGetClientSessionContext() { return delegate.getClientSessionContext(); }
+
+        @Override
+        protected SSLParameters engineGetDefaultSSLParameters() { return delegate.getDefaultSSLParameters(); }
+
+        @Override
+        protected SSLParameters engineGetSupportedSSLParameters() { return delegate.getSupportedSSLParameters(); }
+    }
+
+    /**
+     * 委托SSLEngine：从首次wrap/unwrap（即开始握手）计时，到引擎报告FINISHED为止，即该连接自身的握手耗时，
+     * 不受并发请求的影响
+     */
+    private static final class TimedSSLEngine extends SSLEngine {
+        private final SSLEngine delegate;
+        private final LongConsumer onHandshake;
+        private long handshakeStart;
+        private boolean handshakeRecorded;
+
+        TimedSSLEngine(SSLEngine delegate, LongConsumer onHandshake) {
+            super(delegate.getPeerHost(), delegate.getPeerPort());
+            this.delegate = delegate;
+            this.onHandshake = onHandshake;
+        }
+
+        @Override
+        public SSLEngineResult wrap(ByteBuffer[] srcs, int offset, int length, ByteBuffer dst) throws SSLException {
+            startTiming();
+            return observe(delegate.wrap(srcs, offset, length, dst));
+        }
+
+        @Override
+        public SSLEngineResult unwrap(ByteBuffer src, ByteBuffer[] dsts, int offset, int length) throws SSLException {
+            startTiming();
+            return observe(delegate.unwrap(src, dsts, offset, length));
+        }
+
+        @Override
+        public void beginHandshake() throws SSLException {
+            startTiming();
+            delegate.beginHandshake();
+        }
+
+        // wrap/unwrap由HttpClient的读写两个方向并发调用，计时状态需同步
+        private synchronized void startTiming() {
+            if (handshakeStart == 0) {
+                handshakeStart = System.nanoTime();
+            }
+        }
+
+        private SSLEngineResult observe(SSLEngineResult result) {
+            if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.FINISHED) {
+                long elapsed;
+                synchronized (this) {
+                    if (handshakeRecorded) {
+                        return result;
+                    }
+                    handshakeRecorded = true;
+                    elapsed = System.nanoTime() - handshakeStart;
+                }
+                onHandshake.accept(elapsed);
+            }
+            return result;
+        }
+
+        @Override
+        public Runnable getDelegatedTask() { return delegate.getDelegatedTask(); }
+
+        @Override
+        public void closeInbound() throws SSLException { delegate.closeInbound(); }
+
+        @Override
+        public boolean isInboundDone() { return delegate.isInboundDone(); }
+
+        @Override
+        public void closeOutbound() { delegate.closeOutbound(); }
+
+        @Override
+        public boolean isOutboundDone() { return delegate.isOutboundDone(); }
+
+        @Override
+        public String[] getSupportedCipherSuites() { return delegate.getSupportedCipherSuites(); }
+
+        @Override
+        public String[] getEnabledCipherSuites() { return delegate.getEnabledCipherSuites(); }
+
+        @Override
+        public void setEnabledCipherSuites(String[] suites) { delegate.setEnabledCipherSuites(suites); }
+
+        @Override
+        public String[] getSupportedProtocols() { return delegate.getSupportedProtocols(); }
+
+        @Override
+        public String[] getEnabledProtocols() { return delegate.getEnabledProtocols(); }
+
+        @Override
+        public void setEnabledProtocols(String[] protocols) { delegate.setEnabledProtocols(protocols); }
+
+        @Override
+        public SSLSession getSession() { return delegate.getSession(); }
+
+        @Override
+        public SSLSession getHandshakeSession() { return delegate.getHandshakeSession(); }
+
+        @Override
+        public SSLEngineResult.HandshakeStatus getHandshakeStatus() { return delegate.getHandshakeStatus(); }
+
+        @Override
+        public void setUseClientMode(boolean mode) { delegate.setUseClientMode(mode); }
+
+        @Override
+        public boolean getUseClientMode() { return delegate.getUseClientMode(); }
+
+        @Override
+        public void setNeedClientAuth(boolean need) { delegate.setNeedClientAuth(need); }
+
+        @Override
+        public boolean getNeedClientAuth() { return delegate.getNeedClientAuth(); }
+
+        @Override
+        public void setWantClientAuth(boolean want) { delegate.setWantClientAuth(want); }
+
+        @Override
+        public boolean getWantClientAuth() { return delegate.getWantClientAuth(); }
+
+        @Override
+        public void setEnableSessionCreation(boolean flag) { delegate.setEnableSessionCreation(flag); }
+
+        @Override
+        public boolean getEnableSessionCreation() { return delegate.getEnableSessionCreation(); }
+
+        @Override
+        public SSLParameters getSSLParameters() { return delegate.getSSLParameters(); }
+
+        @Override
+        public void setSSLParameters(SSLParameters params) { delegate.setSSLParameters(params); }
+
+        @Override
+        public String getApplicationProtocol() { return delegate.getApplicationProtocol(); }
+
+        @Override
+        public String getHandshakeApplicationProtocol() { return delegate.getHandshakeApplicationProtocol(); }
+
+        @Override
+        public void setHandshakeApplicationProtocolSelector(BiFunction<SSLEngine, List<String>, String> selector) {
+            delegate.setHandshakeApplicationProtocolSelector(selector);
+        }
+
+        @Override
+        public BiFunction<SSLEngine, List<String>, String> getHandshakeApplicationProtocolSelector() {
+            return delegate.getHandshakeApplicationProtocolSelector();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.util;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按用户公平调度的准入闸门
+ * 同时执行数有上限，超出的请求进入有界等待队列，各用户的队列按轮转顺序放行；
+ * 预计排队时间（按近期平均处理时长估算）超过SLA的请求直接拒绝
+ */
+public class FairAdmissionGate {
+
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final int maxQueuePerUser;
+    private final long queueWaitSlaMs;
+    private final double ewmaAlpha;
+
+    // 使用ReentrantLock而非synchronized，虚拟线程模式下等待时不钉住载体线程
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Long, ArrayDeque<Ticket>> queues = new LinkedHashMap<>();
+    private int running;
+    private int queued;
+    private double avgServiceMs;
+
+    private long admitted;
+    private long shed;
+    private long timedOut;
+
+    public FairAdmissionGate(int maxConcurrent, int maxQueue, int maxQueuePerUser,
+                             long queueWaitSlaMs, long initialServiceMs, double ewmaAlpha) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.maxQueuePerUser = maxQueuePerUser;
+        this.queueWaitSlaMs = queueWaitSlaMs;
+        this.avgServiceMs = initialServiceMs;
+        this.ewmaAlpha = ewmaAlpha;
+    }
+
+    /**
+     * 申请执行许可：立即放行、排队等待后放行，或拒绝
+     * @param userId 用户ID（为空时归入匿名队列）
+     */
+    public Decision acquire(Long userId) throws InterruptedException {
+        Long user = userId == null ? 0L : userId;
+        Ticket ticket = new Ticket(user);
+        long predictedWaitMs;
+
+        lock.lock();
+        try {
+            if (running < maxConcurrent && queued == 0) {
+                running++;
+                admitted++;
+                ticket.startNanos = System.nanoTime();
+                return Decision.admit(ticket);
+            }
+            ArrayDeque<Ticket> own = queues.get(user);
+            int ownQueued = own == null ? 0 : own.size();
+            predictedWaitMs = predictWaitMs(user, ownQueued);
+            if (queued >= maxQueue || ownQueued >= maxQueuePerUser || predictedWaitMs > queueWaitSlaMs) {
+                shed++;
+                return Decision.reject(predictedWaitMs);
+            }
+            queues.computeIfAbsent(user, k -> new ArrayDeque<>()).addLast(ticket);
+            queued++;
+        } finally {
+            lock.unlock();
+        }
+
+        boolean granted;
+        try {
+            granted = ticket.granted.await(queueWaitSlaMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            // 等待中被中断：撤回排队的许可；若已被放行则归还，避免许可发给已离开的调用方而永久占用一个并发名额
+            if (!withdraw(ticket)) {
+                release(ticket);
+            }
+            throw e;
+        }
+        if (granted) {
+            return Decision.admit(ticket);
+        }
+        lock.lock();
+        try {
+            // 超时与放行竞争：已被放行则照常执行
+            if (!withdraw(ticket)) {
+                return Decision.admit(ticket);
+            }
+            timedOut++;
+            return Decision.reject(predictWaitMs(user, 0));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 归还许可，并按用户轮转放行下一个排队请求
+     */
+    public void release(Ticket ticket) {
+        lock.lock();
+        try {
+            long serviceMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - ticket.startNanos);
+            avgServiceMs = avgServiceMs * (1 - ewmaAlpha) + serviceMs * ewmaAlpha;
+            running--;
+
+            Iterator<Map.Entry<Long, ArrayDeque<Ticket>>> it = queues.entrySet().iterator();
+            if (running < maxConcurrent && it.hasNext()) {
+                Map.Entry<Long, ArrayDeque<Ticket>> entry = it.next();
+                Ticket next = entry.getValue().pollFirst();
+                it.remove();
+                if (!entry.getValue().isEmpty()) {
+                    // 该用户仍有请求排队，移到轮转末尾
+                    queues.put(entry.getKey(), entry.getValue());
+                }
+                queued--;
+                running++;
+                admitted++;
+                next.startNanos = System.nanoTime();
+                next.granted.countDown();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> metricsSnapshot() {
+        lock.lock();
+        try {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("running", running);
+            snapshot.put("queued", queued);
+            snapshot.put("queuedUsers", queues.size());
+            snapshot.put("avgServiceMillis", Math.round(avgServiceMs));
+            snapshot.put("admitted", admitted);
+            snapshot.put("shed", shed);
+            snapshot.put("timedOut", timedOut);
+            return snapshot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 从等待队列撤回尚未放行的许可
+     * @return 是否撤回；false表示已被放行（放行与出队在同一把锁内完成）
+     */
+    private boolean withdraw(Ticket ticket) {
+        lock.lock();
+        try {
+            if (ticket.granted.getCount() == 0) {
+                return false;
+            }
+            ArrayDeque<Ticket> own = queues.get(ticket.userId);
+            if (own != null && own.remove(ticket)) {
+                queued--;
+                if (own.isEmpty()) {
+                    queues.remove(ticket.userId);
+                }
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 预计排队时间：轮转调度下排在前面的请求数 = 本用户已排队数 + 其他用户各自前(ownQueued+1)个请求（调用方须持有锁）
+     */
+    private long predictWaitMs(Long user, int ownQueued) {
+        int ahead = ownQueued;
+        for (Map.Entry<Long, ArrayDeque<Ticket>> entry : queues.entrySet()) {
+            if (!entry.getKey().equals(user)) {
+                ahead += Math.min(entry.getValue().size(), ownQueued + 1);
+            }
+        }
+        return Math.round((ahead + 1) * avgServiceMs / maxConcurrent);
+    }
+
+    /**
+     * 执行许可
+     */
+    public static class Ticket {
+        private final Long userId;
+        private final CountDownLatch granted = new CountDownLatch(1);
+        private volatile long startNanos;
+
+        private Ticket(Long userId) {
+            this.userId = userId;
+        }
+
+        public Long getUserId() { return userId; }
+    }
+
+    /**
+     * 准入结果
+     */
+    public static class Decision {
+        private final Ticket ticket;
+        private final long predictedWaitMs;
+
+        private Decision(Ticket ticket, long predictedWaitMs) {
+            this.ticket = ticket;
+            this.predictedWaitMs = predictedWaitMs;
+        }
+
+        static Decision admit(Ticket ticket) { return new Decision(ticket, 0); }
+        static Decision reject(long predictedWaitMs) { return new Decision(null, predictedWaitMs); }
+
+        public boolean isAdmitted() { return ticket != null; }
+        public Ticket getTicket() { return ticket; }
+        public long getPredictedWaitMs() { return predictedWaitMs; }
+    }
+}
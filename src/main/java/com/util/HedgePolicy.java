@@ -0,0 +1,133 @@
+package com.util;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 请求对冲策略：根据近期调用的耗时分位数决定何时发出第二个相同请求，
+ * 并以令牌桶限制对冲预算（每次主请求积累budgetRatio个令牌，每次对冲消耗1个）。
+ * 失败与超时的调用以删失样本计入（实际耗时至少为记录值），否则最慢的调用从样本中消失，分位数偏低
+ */
+public class HedgePolicy {
+
+    private final double percentile;
+    private final int minSamples;
+    private final long minDelayMs;
+    private final double budgetRatio;
+    private final double maxTokens;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long[] window;
+    private int windowSize;
+    private int windowNext;
+    private double tokens;
+
+    private long calls;
+    private long hedges;
+    private long hedgeWins;
+    private long budgetDenied;
+    private long censoredSamples;
+
+    public HedgePolicy(double percentile, int windowCapacity, int minSamples, long minDelayMs,
+                       double budgetRatio, double maxTokens) {
+        this.percentile = percentile;
+        this.window = new long[windowCapacity];
+        this.minSamples = minSamples;
+        this.minDelayMs = minDelayMs;
+        this.budgetRatio = budgetRatio;
+        this.maxTokens = maxTokens;
+    }
+
+    /**
+     * 登记一次主请求，并返回对冲延迟
+     * @return 对冲延迟（毫秒），样本不足时返回-1表示不对冲
+     */
+    public long onCall() {
+        lock.lock();
+        try {
+            calls++;
+            tokens = Math.min(maxTokens, tokens + budgetRatio);
+            return windowSize < minSamples ? -1 : Math.max(minDelayMs, percentileLocked());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 申请一次对冲预算
+     */
+    public boolean tryAcquireHedge() {
+        lock.lock();
+        try {
+            if (tokens >= 1.0) {
+                tokens -= 1.0;
+                hedges++;
+                return true;
+            }
+            budgetDenied++;
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 记录一次成功调用的耗时（自主请求发出起计，对冲胜出时也不例外）
+     */
+    public void recordLatency(long latencyMs, boolean wonByHedge) {
+        lock.lock();
+        try {
+            addSampleLocked(latencyMs);
+            if (wonByHedge) {
+                hedgeWins++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 记录一次失败调用的耗时下限：超时按超时值，其他失败按失败时已耗时
+     */
+    public void recordCensored(long latencyMs) {
+        lock.lock();
+        try {
+            addSampleLocked(latencyMs);
+            censoredSamples++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> metricsSnapshot() {
+        lock.lock();
+        try {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("calls", calls);
+            snapshot.put("hedges", hedges);
+            snapshot.put("hedgeWins", hedgeWins);
+            snapshot.put("budgetDenied", budgetDenied);
+            snapshot.put("censoredSamples", censoredSamples);
+            snapshot.put("extraCallRatio", calls == 0 ? 0.0 : (double) hedges / calls);
+            snapshot.put("hedgeDelayMillis", windowSize < minSamples ? -1 : Math.max(minDelayMs, percentileLocked()));
+            return snapshot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void addSampleLocked(long latencyMs) {
+        window[windowNext] = latencyMs;
+        windowNext = (windowNext + 1) % window.length;
+        windowSize = Math.min(windowSize + 1, window.length);
+    }
+
+    private long percentileLocked() {
+        long[] sorted = Arrays.copyOf(window, windowSize);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
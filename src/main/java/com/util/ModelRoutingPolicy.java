@@ -0,0 +1,17 @@
+package com.util;
+
+import com.config.DeepSeekProperties;
+
+/**
+ * 模型路由策略：根据用户健康信息选择本次生成使用的模型档位
+ * 默认实现为 {@link ComplexityRoutingPolicy}，声明@Primary的实现即可替换
+ */
+public interface ModelRoutingPolicy {
+
+    /**
+     * @param userInfo 用户健康信息
+     * @param count 本次生成的药膳款数
+     * @return 选中的档位，返回null时使用默认档位
+     */
+    DeepSeekProperties.ModelTier route(DeepSeekClient.UserHealthInfo userInfo, int count);
+}
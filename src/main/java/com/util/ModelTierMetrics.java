@@ -0,0 +1,79 @@
+package com.util;
+
+import com.config.DeepSeekProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按模型档位统计调用次数、耗时、token用量与估算成本
+ */
+public class ModelTierMetrics {
+
+    private final Map<String, Stats> tiers = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次调用的结果与端到端耗时
+     */
+    public void record(DeepSeekProperties.ModelTier tier, long latencyMs, boolean success) {
+        Stats stats = stats(tier);
+        stats.calls.increment();
+        if (success) {
+            stats.latencyMsTotal.add(latencyMs);
+        } else {
+            stats.failures.increment();
+        }
+    }
+
+    /**
+     * 记录响应中的token用量（对冲时落败的一路若已返回同样计入，其token已计费）
+     */
+    public void recordUsage(DeepSeekProperties.ModelTier tier, long promptTokens, long completionTokens) {
+        Stats stats = stats(tier);
+        stats.promptTokens.add(promptTokens);
+        stats.completionTokens.add(completionTokens);
+        stats.cost.add((promptTokens * tier.getInputPricePerMillion()
+                + completionTokens * tier.getOutputPricePerMillion()) / 1_000_000);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        tiers.forEach((name, stats) -> {
+            long calls = stats.calls.sum();
+            long succeeded = calls - stats.failures.sum();
+            long completionTokens = stats.completionTokens.sum();
+            Map<String, Object> tier = new LinkedHashMap<>();
+            tier.put("model", stats.model);
+            tier.put("calls", calls);
+            tier.put("failures", stats.failures.sum());
+            tier.put("avgLatencyMillis", succeeded == 0 ? 0 : stats.latencyMsTotal.sum() / succeeded);
+            tier.put("promptTokens", stats.promptTokens.sum());
+            tier.put("completionTokens", completionTokens);
+            tier.put("avgCompletionTokens", succeeded == 0 ? 0 : completionTokens / succeeded);
+            tier.put("estimatedCost", Math.round(stats.cost.sum() * 10000) / 10000.0);
+            snapshot.put(name, tier);
+        });
+        return snapshot;
+    }
+
+    private Stats stats(DeepSeekProperties.ModelTier tier) {
+        return tiers.computeIfAbsent(tier.getName(), name -> new Stats(tier.getModel()));
+    }
+
+    private static class Stats {
+        private final String model;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder latencyMsTotal = new LongAdder();
+        private final LongAdder promptTokens = new LongAdder();
+        private final LongAdder completionTokens = new LongAdder();
+        private final DoubleAdder cost = new DoubleAdder();
+
+        private Stats(String model) {
+            this.model = model;
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package com.util;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/**
+ * 健康画像相似度索引（内存）
+ * 症状/疾病标签经字典编码为位图（每个标签独占一位，标签种类增多时位图按倍数加宽），画像数据存放在原始类型数组中；
+ * 画像先按性别、血压、血糖分组（须完全一致），组内再按年龄分段。距离 = 标签Jaccard距离与年龄差的加权和，
+ * 查询从同龄分段向两侧扩展，年龄项已超过当前最优距离即停止，只扫描可能命中的少数分段。
+ * 标签种类超过位图上限后，新标签不再占位，只计入并集（视为无法比对的未知标签），绝不与其他标签共用一位。
+ * 标签统一经 {@link #normalizeTag(String)} 规范化后入字典；同一词表也用于从禁忌说明中识别提及的病症
+ */
+public class ProfileSimilarityIndex {
+
+    private static final int INITIAL_WORDS = 8;            // 初始位图长度（long个数），可区分512种标签
+    private static final int MAX_WORDS = 64;               // 位图长度上限，可区分4096种标签
+    private static final int MAX_AGE = 150;                // 年龄分段上限（超出按上限归段）
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+    private final double jaccardWeight;
+    private final double ageWeight;
+    private final double ageScale;
+
+    // 标签字典：条目数为标签种类数，与画像数量无关
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    // 规范化标签词表（不区分症状/疾病），用于在文本中识别标签
+    private final Set<String> vocabulary = new HashSet<>();
+    private int longestTag;
+    // 性别/血压/血糖组合 → 按年龄下标的分段（组合数很少）
+    private final Map<Integer, Segment[]> groups = new HashMap<>();
+
+    private int words = INITIAL_WORDS;
+    private int size;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public ProfileSimilarityIndex(double jaccardWeight, double ageWeight, double ageScale) {
+        this.jaccardWeight = jaccardWeight;
+        this.ageWeight = ageWeight;
+        this.ageScale = ageScale;
+    }
+
+    /**
+     * 加入一个画像及为其生成的药膳
+     */
+    public void add(int age, int gender, int bloodPressure, int bloodSugar,
+                    List<String> symptoms, List<String> diseases, long recipeId) {
+        lock.writeLock().lock();
+        try {
+            // 先登记标签并按需加宽位图，再写入分段
+            int[] tagBits = new int[symptoms.size() + diseases.size()];
+            int n = 0;
+            for (String tag : symptoms) {
+                tagBits[n++] = bitOf("S:", tag, true);
+            }
+            for (String tag : diseases) {
+                tagBits[n++] = bitOf("D:", tag, true);
+            }
+            int maxBit = -1;
+            for (int bit : tagBits) {
+                if (bit < MAX_WORDS * 64) {
+                    maxBit = Math.max(maxBit, bit);
+                }
+            }
+            if (maxBit >= words * 64) {
+                widen(Math.min(MAX_WORDS, Math.max(words * 2, (maxBit >>> 6) + 1)));
+            }
+
+            Segment[] byAge = groups.computeIfAbsent(groupKey(gender, bloodPressure, bloodSugar),
+                    k -> new Segment[MAX_AGE + 1]);
+            int ageIndex = clampAge(age);
+            if (byAge[ageIndex] == null) {
+                byAge[ageIndex] = new Segment(words);
+            }
+            byAge[ageIndex].add(tagBits, recipeId, words);
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查找距离不超过maxDistance的最近画像
+     * @return 最近画像对应的药膳，不存在时返回null
+     */
+    public Match nearest(int age, int gender, int bloodPressure, int bloodSugar,
+                         List<String> symptoms, List<String> diseases, double maxDistance) {
+        return nearest(age, gender, bloodPressure, bloodSugar, symptoms, diseases, maxDistance, recipeId -> false);
+    }
+
+    /**
+     * 查找距离不超过maxDistance、且药膳未被排除的最近画像
+     * @param excluded 返回true的药膳ID跳过，继续比较下一个画像
+     * @return 最近画像对应的药膳，不存在时返回null
+     */
+    public Match nearest(int age, int gender, int bloodPressure, int bloodSugar,
+                         List<String> symptoms, List<String> diseases, double maxDistance, LongPredicate excluded) {
+        lock.readLock().lock();
+        try {
+            Segment[] byAge = groups.get(groupKey(gender, bloodPressure, bloodSugar));
+            if (byAge == null) {
+                return null;
+            }
+
+            // 查询标签编码：字典中没有的标签及超出位图上限的标签不占位，但计入并集大小
+            long[] query = new long[words];
+            int unknown = 0;
+            for (String tag : symptoms) {
+                int bit = bitOf("S:", tag, false);
+                if (bit < 0 || bit >= words * 64) unknown++; else setBit(query, 0, bit);
+            }
+            for (String tag : diseases) {
+                int bit = bitOf("D:", tag, false);
+                if (bit < 0 || bit >= words * 64) unknown++; else setBit(query, 0, bit);
+            }
+
+            Best best = new Best(maxDistance, excluded);
+            int center = clampAge(age);
+            for (int diff = 0; diff <= MAX_AGE; diff++) {
+                double ageTerm = ageWeight * Math.min(1.0, diff / ageScale);
+                if (ageTerm > best.distance || best.distance == 0.0) {
+                    break;
+                }
+                if (center - diff >= 0) {
+                    scan(byAge[center - diff], query, unknown, ageTerm, best);
+                }
+                if (diff > 0 && center + diff <= MAX_AGE) {
+                    scan(byAge[center + diff], query, unknown, ageTerm, best);
+                }
+            }
+            return best.recipeId < 0 ? null : new Match(best.recipeId, best.distance);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 药膳合并后改指向：原指向fromRecipeId的画像改为指向toRecipeId（画像本身保留，仍可被匹配）
+     * @return 改指向的画像数
+     */
+    public int remapRecipe(long fromRecipeId, long toRecipeId) {
+        lock.writeLock().lock();
+        try {
+            int remapped = 0;
+            for (Segment[] byAge : groups.values()) {
+                for (Segment segment : byAge) {
+                    if (segment == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < segment.size; i++) {
+                        if (segment.recipeIds[i] == fromRecipeId) {
+                            segment.recipeIds[i] = toRecipeId;
+                            remapped++;
+                        }
+                    }
+                }
+            }
+            return remapped;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 识别文本中提及的标签：在字典词表与extraTags（均为规范化后的标签）上做最长匹配，
+     * 如"萎缩性胃炎"已在词表中时，文本中的该词不会被识别为"胃炎"；标点与空白视为分隔，匹配不跨越
+     * @return 提及的规范化标签
+     */
+    public Set<String> mentionedTags(String text, Collection<String> extraTags) {
+        Set<String> mentioned = new LinkedHashSet<>();
+        if (text == null || text.isEmpty()) {
+            return mentioned;
+        }
+        String normalized = normalizeText(text);
+        lock.readLock().lock();
+        try {
+            int longest = longestTag;
+            for (String tag : extraTags) {
+                longest = Math.max(longest, tag.length());
+            }
+            int i = 0;
+            while (i < normalized.length()) {
+                int matched = 0;
+                for (int len = Math.min(longest, normalized.length() - i); len > 0; len--) {
+                    String candidate = normalized.substring(i, i + len);
+                    if (vocabulary.contains(candidate) || extraTags.contains(candidate)) {
+                        mentioned.add(candidate);
+                        matched = len;
+                        break;
+                    }
+                }
+                i += Math.max(1, matched);
+            }
+            return mentioned;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 标签规范化：全角转半角、英文小写、去除空白与标点；规范化后为空返回空串
+     */
+    public static String normalizeTag(String tag) {
+        if (tag == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(tag.length());
+        String folded = Normalizer.normalize(tag, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * 文本规范化：与标签相同的折叠规则，但空白与标点替换为分隔符（保留词边界）
+     */
+    private static String normalizeText(String text) {
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder normalized = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            normalized.append(Character.isLetterOrDigit(c) ? c : '|');
+        }
+        return normalized.toString();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int dictionarySize() {
+        lock.readLock().lock();
+        try {
+            return dictionary.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 当前每个画像的位图长度（long个数）
+     */
+    public int bitsetWords() {
+        lock.readLock().lock();
+        try {
+            return words;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void scan(Segment segment, long[] query, int unknown, double ageTerm, Best best) {
+        if (segment == null) {
+            return;
+        }
+        int words = query.length;
+        long[] bits = segment.bits;
+        for (int i = 0; i < segment.size; i++) {
+            int base = i * words;
+            int intersection = 0;
+            int union = unknown + segment.overflowTags[i];
+            for (int w = 0; w < words; w++) {
+                long a = bits[base + w];
+                intersection += Long.bitCount(a & query[w]);
+                union += Long.bitCount(a | query[w]);
+            }
+            double jaccard = union == 0 ? 1.0 : (double) intersection / union;
+            double distance = ageTerm + jaccardWeight * (1.0 - jaccard);
+            if (distance <= best.distance && !best.excluded.test(segment.recipeIds[i])) {
+                best.recipeId = segment.recipeIds[i];
+                best.distance = distance;
+                if (distance == 0.0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 标签 → 位序号（即字典编号）；create=false时未登记的标签返回-1（调用方须持有相应的锁）
+     * @param kind 标签类别前缀（S:症状 / D:疾病），同名的症状与疾病各占一位
+     */
+    private int bitOf(String kind, String tag, boolean create) {
+        String normalized = normalizeTag(tag);
+        Integer id = dictionary.get(kind + normalized);
+        if (id == null) {
+            if (!create) {
+                return -1;
+            }
+            id = dictionary.size();
+            dictionary.put(kind + normalized, id);
+            if (!normalized.isEmpty() && vocabulary.add(normalized)) {
+                longestTag = Math.max(longestTag, normalized.length());
+            }
+        }
+        return id;
+    }
+
+    /**
+     * 加宽所有分段的位图：已有画像的位不变，新增的高位补0（调用方须持有写锁）
+     */
+    private void widen(int newWords) {
+        for (Segment[] byAge : groups.values()) {
+            for (Segment segment : byAge) {
+                if (segment != null) {
+                    segment.widen(words, newWords);
+                }
+            }
+        }
+        words = newWords;
+    }
+
+    private static int groupKey(int gender, int bloodPressure, int bloodSugar) {
+        return ((gender & 0xFF) << 16) | ((bloodPressure & 0xFF) << 8) | (bloodSugar & 0xFF);
+    }
+
+    private static int clampAge(int age) {
+        return Math.max(0, Math.min(MAX_AGE, age));
+    }
+
+    private static void setBit(long[] target, int base, int bit) {
+        target[base + (bit >>> 6)] |= 1L << (bit & 63);
+    }
+
+    /**
+     * 同组同龄画像的列式存储
+     */
+    private static final class Segment {
+        private long[] bits;
+        private short[] overflowTags;    // 超出位图上限、未占位的标签数
+        private long[] recipeIds;
+        private int size;
+
+        private Segment(int words) {
+            bits = new long[INITIAL_SEGMENT_CAPACITY * words];
+            overflowTags = new short[INITIAL_SEGMENT_CAPACITY];
+            recipeIds = new long[INITIAL_SEGMENT_CAPACITY];
+        }
+
+        private void add(int[] tagBits, long recipeId, int words) {
+            if (size == recipeIds.length) {
+                int capacity = size * 2;
+                bits = Arrays.copyOf(bits, capacity * words);
+                overflowTags = Arrays.copyOf(overflowTags, capacity);
+                recipeIds = Arrays.copyOf(recipeIds, capacity);
+            }
+            int base = size * words;
+            for (int bit : tagBits) {
+                if (bit >= words * 64) {
+                    overflowTags[size]++;
+                } else {
+                    setBit(bits, base, bit);
+                }
+            }
+            recipeIds[size] = recipeId;
+            size++;
+        }
+
+        private void widen(int oldWords, int newWords) {
+            long[] widened = new long[recipeIds.length * newWords];
+            for (int i = 0; i < size; i++) {
+                System.arraycopy(bits, i * oldWords, widened, i * newWords, oldWords);
+            }
+            bits = widened;
+        }
+    }
+
+    /**
+     * 查询过程中的当前最优结果
+     */
+    private static final class Best {
+        private final LongPredicate excluded;
+        private long recipeId = -1;
+        private double distance;
+
+        private Best(double maxDistance, LongPredicate excluded) {
+            this.distance = maxDistance;
+            this.excluded = excluded;
+        }
+    }
+
+    /**
+     * 查询结果：相似画像的药膳ID及距离
+     */
+    public static class Match {
+        private final long recipeId;
+        private final double distance;
+
+        public Match(long recipeId, double distance) {
+            this.recipeId = recipeId;
+            this.distance = distance;
+        }
+
+        public long getRecipeId() { return recipeId; }
+        public double getDistance() { return distance; }
+    }
+}
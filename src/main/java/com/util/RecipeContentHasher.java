@@ -0,0 +1,57 @@
+package com.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.HexFormat;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * 药膳内容指纹：名称与成分集合规范化后取SHA-256
+ * 成分去掉用量、单位及括号备注后排序去重，"山药200g、薏米50克"与"薏米 30g、山药"视为同一药膳
+ */
+public final class RecipeContentHasher {
+
+    private static final Pattern INGREDIENT_SEPARATOR = Pattern.compile("[、,，;；/\\n]+");
+    private static final Pattern REMARK = Pattern.compile("[（(\\[【].*?[)）\\]】]");
+    private static final String UNITS = "(kg|mg|ml|g|l|千克|克|毫升|升|斤|两|钱|个|颗|枚|片|根|只|条|勺|匙|汤匙|茶匙|碗|杯|把|段|块|粒|朵|瓣|张)";
+    // 中文数字必须紧跟单位才视为用量，避免误删"三七"等药材名
+    private static final Pattern QUANTITY = Pattern.compile(
+            "[0-9.~\\-]+\\s*" + UNITS + "?|[一二三四五六七八九十半两]+" + UNITS + "|适量|少许|若干");
+    private static final Pattern NON_WORD = Pattern.compile("[\\s\\p{Punct}\\p{IsPunctuation}]+");
+
+    private RecipeContentHasher() {}
+
+    public static String hash(String name, String ingredients) {
+        TreeSet<String> normalizedIngredients = new TreeSet<>();
+        if (ingredients != null) {
+            for (String ingredient : INGREDIENT_SEPARATOR.split(normalize(ingredients))) {
+                String stripped = QUANTITY.matcher(REMARK.matcher(ingredient).replaceAll("")).replaceAll("");
+                stripped = NON_WORD.matcher(stripped).replaceAll("");
+                if (!stripped.isEmpty()) {
+                    normalizedIngredients.add(stripped);
+                }
+            }
+        }
+        String normalizedName = name == null ? "" : NON_WORD.matcher(REMARK.matcher(normalize(name)).replaceAll("")).replaceAll("");
+        return sha256(normalizedName + "|" + String.join(",", normalizedIngredients));
+    }
+
+    /**
+     * 全角转半角（NFKC）并统一小写
+     */
+    private static String normalize(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase();
+    }
+
+    private static String sha256(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 药膳全文检索倒排索引（内存、增量追加）
+ * 倒排表按文档号递增存放，文档号差值与词频以变长整数编码在byte数组中；
+ * 打分采用BM25，名称、功效、成分字段按权重折算词频。
+ * 单字查询（如"药"、"枣"）不另建单字倒排，而是合并所有含该字的二字组倒排表，作为一个词项打分；
+ * 同一药膳ID只索引一次（启动扫描与保存后增量加入可能读到同一行）；
+ * 删除只打标记（倒排表不回收），检索时跳过已删除的文档，已删除的ID也不会被再次加入
+ */
+public class RecipeSearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // 字段权重（折算为词频倍数）
+    private static final int NAME_WEIGHT = 3;
+    private static final int EFFECT_WEIGHT = 2;
+    private static final int INGREDIENTS_WEIGHT = 2;
+    private static final int METHOD_WEIGHT = 1;
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    // 汉字 → 含该字的二字组倒排表（单字查询时合并）
+    private final Map<Character, List<Postings>> bigramsByChar = new HashMap<>();
+    private long[] recipeIds = new long[1024];
+    private int[] docLengths = new int[1024];
+    private int docCount;
+    private final Map<Long, Integer> docsByRecipe = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private long totalLength;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 追加一篇药膳文档
+     * @return 该药膳ID已索引过（或已删除）时不再加入，返回false
+     */
+    public boolean add(long recipeId, String name, String effect, String ingredients, String method) {
+        Map<String, Integer> termFreqs = new HashMap<>();
+        int length = countTerms(termFreqs, name, NAME_WEIGHT)
+                + countTerms(termFreqs, effect, EFFECT_WEIGHT)
+                + countTerms(termFreqs, ingredients, INGREDIENTS_WEIGHT)
+                + countTerms(termFreqs, method, METHOD_WEIGHT);
+
+        lock.writeLock().lock();
+        try {
+            if (docsByRecipe.containsKey(recipeId)) {
+                return false;
+            }
+            if (docCount == recipeIds.length) {
+                recipeIds = Arrays.copyOf(recipeIds, docCount * 2);
+                docLengths = Arrays.copyOf(docLengths, docCount * 2);
+            }
+            int doc = docCount++;
+            recipeIds[doc] = recipeId;
+            docsByRecipe.put(recipeId, doc);
+            docLengths[doc] = length;
+            totalLength += length;
+            for (Map.Entry<String, Integer> entry : termFreqs.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), this::newPostings).append(doc, entry.getValue());
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除药膳文档（如重复药膳合并后）
+     * @return 索引中存在该药膳时返回true
+     */
+    public boolean remove(long recipeId) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docsByRecipe.get(recipeId);
+            if (doc == null || deleted.get(doc)) {
+                return false;
+            }
+            deleted.set(doc);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 检索
+     * @return 按BM25得分降序的药膳ID
+     */
+    public long[] search(String query, int limit) {
+        LinkedHashSet<String> terms = new LinkedHashSet<>(CjkBigramTokenizer.tokenize(query));
+        lock.readLock().lock();
+        try {
+            if (terms.isEmpty() || docCount == 0 || limit <= 0) {
+                return new long[0];
+            }
+            double avgLength = (double) totalLength / docCount;
+            float[] scores = new float[docCount];
+            int[] touched = new int[docCount];
+            int touchedCount = 0;
+
+            for (String term : terms) {
+                if (CjkBigramTokenizer.isSingleHan(term)) {
+                    touchedCount = scoreCharacter(term.charAt(0), avgLength, scores, touched, touchedCount);
+                    continue;
+                }
+                Postings list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+                double idf = idf(list.df);
+                PostingsCursor cursor = new PostingsCursor(list);
+                while (cursor.next()) {
+                    int doc = cursor.doc;
+                    if (deleted.get(doc)) {
+                        continue;
+                    }
+                    if (scores[doc] == 0f) {
+                        touched[touchedCount++] = doc;
+                    }
+                    scores[doc] += bm25(idf, cursor.tf, docLengths[doc], avgLength);
+                }
+            }
+
+            // 小顶堆取前limit
+            PriorityQueue<Integer> heap = new PriorityQueue<>(limit + 1, (a, c) -> Float.compare(scores[a], scores[c]));
+            for (int i = 0; i < touchedCount; i++) {
+                heap.offer(touched[i]);
+                if (heap.size() > limit) {
+                    heap.poll();
+                }
+            }
+            long[] result = new long[heap.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = recipeIds[heap.poll()];
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 未删除的文档数
+     */
+    /**
+     * 单字词项打分：单字倒排（单字成段的文本）与所有含该字的二字组倒排合并，词频相加、文档频率按合并后的文档数计
+     * （一个字在连续汉字中间时同时出现在前后两个二字组里，词频会多计一次，对排序影响可以接受）
+     * @return 更新后的touchedCount（调用方须持有读锁）
+     */
+    private int scoreCharacter(char c, double avgLength, float[] scores, int[] touched, int touchedCount) {
+        List<Postings> lists = new ArrayList<>(bigramsByChar.getOrDefault(c, List.of()));
+        Postings unigram = postings.get(String.valueOf(c));
+        if (unigram != null) {
+            lists.add(unigram);
+        }
+        if (lists.isEmpty()) {
+            return touchedCount;
+        }
+        int[] tfs = new int[docCount];
+        int[] docs = new int[docCount];
+        int df = 0;
+        for (Postings list : lists) {
+            PostingsCursor cursor = new PostingsCursor(list);
+            while (cursor.next()) {
+                int doc = cursor.doc;
+                if (deleted.get(doc)) {
+                    continue;
+                }
+                if (tfs[doc] == 0) {
+                    docs[df++] = doc;
+                }
+                tfs[doc] += cursor.tf;
+            }
+        }
+        double idf = idf(df);
+        for (int i = 0; i < df; i++) {
+            int doc = docs[i];
+            if (scores[doc] == 0f) {
+                touched[touchedCount++] = doc;
+            }
+            scores[doc] += bm25(idf, tfs[doc], docLengths[doc], avgLength);
+        }
+        return touchedCount;
+    }
+
+    private double idf(int df) {
+        return Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+    }
+
+    private static float bm25(double idf, int tf, int docLength, double avgLength) {
+        double norm = K1 * (1 - B + B * docLength / avgLength);
+        return (float) (idf * tf * (K1 + 1) / (tf + norm));
+    }
+
+    /**
+     * 新词项的倒排表；汉字二字组同时登记到两个字下（调用方须持有写锁）
+     */
+    private Postings newPostings(String term) {
+        Postings list = new Postings();
+        if (term.length() == 2 && CjkBigramTokenizer.isSingleHan(term.substring(0, 1))
+                && CjkBigramTokenizer.isSingleHan(term.substring(1))) {
+            bigramsByChar.computeIfAbsent(term.charAt(0), k -> new ArrayList<>()).add(list);
+            if (term.charAt(1) != term.charAt(0)) {
+                bigramsByChar.computeIfAbsent(term.charAt(1), k -> new ArrayList<>()).add(list);
+            }
+        }
+        return list;
+    }
+
+    public int docCount() {
+        lock.readLock().lock();
+        try {
+            return docCount - deleted.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 内存占用统计：词项数、倒排数据字节数、估算总字节数（含文档数组与词项字典）
+     */
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            long postingBytes = 0;
+            long termChars = 0;
+            for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+                postingBytes += entry.getValue().data.length;
+                termChars += entry.getKey().length();
+            }
+            // 每个词项：HashMap节点约32B、String约40B+字符、Postings对象约32B，二字组在单字表中另占两个引用；
+            // 每篇文档的ID映射：节点与装箱键值约64B
+            long estimated = postingBytes + termChars * 2 + postings.size() * 120L
+                    + recipeIds.length * 8L + docLengths.length * 4L + docsByRecipe.size() * 64L;
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("docs", docCount - deleted.cardinality());
+            stats.put("deletedDocs", deleted.cardinality());
+            stats.put("terms", postings.size());
+            stats.put("postingBytes", postingBytes);
+            stats.put("estimatedBytes", estimated);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int countTerms(Map<String, Integer> termFreqs, String text, int weight) {
+        List<String> tokens = CjkBigramTokenizer.tokenize(text);
+        for (String token : tokens) {
+            termFreqs.merge(token, weight, Integer::sum);
+        }
+        return tokens.size() * weight;
+    }
+
+    /**
+     * 倒排表的顺序解码器
+     */
+    private static final class PostingsCursor {
+        private final byte[] data;
+        private final int size;
+        private int pos;
+        private int doc;
+        private int tf;
+
+        PostingsCursor(Postings list) {
+            this.data = list.data;
+            this.size = list.size;
+        }
+
+        /**
+         * 解码下一项：文档号差值、词频
+         */
+        boolean next() {
+            if (pos >= size) {
+                return false;
+            }
+            doc += readVarInt();
+            tf = readVarInt();
+            return true;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[pos++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+
+    /**
+     * 单个词项的倒排表：变长整数编码的（文档号差值, 词频）序列
+     */
+    private static final class Postings {
+        private byte[] data = new byte[8];
+        private int size;
+        private int df;
+        private int lastDoc;
+
+        void append(int doc, int tf) {
+            writeVarInt(doc - lastDoc);
+            writeVarInt(tf);
+            lastDoc = doc;
+            df++;
+        }
+
+        private void writeVarInt(int value) {
+            if (size + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + 5));
+            }
+            while ((value & ~0x7F) != 0) {
+                data[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte) value;
+        }
+    }
+}
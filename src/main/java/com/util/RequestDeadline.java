@@ -0,0 +1,122 @@
+package com.util;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 请求截止时间与取消信号：沿 Controller → Service → DeepSeekClient 传递，
+ * 用于设置出站请求与JDBC语句超时，并在客户端断开时取消进行中的AI调用
+ */
+public class RequestDeadline {
+
+    private static final ThreadLocal<RequestDeadline> CURRENT = new ThreadLocal<>();
+
+    // 取消带来的节省统计
+    private static final LongAdder ABORTED_REQUESTS = new LongAdder();
+    private static final LongAdder SKIPPED_CALLS = new LongAdder();
+    private static final LongAdder CANCELLED_EXCHANGES = new LongAdder();
+    private static final LongAdder SKIPPED_INSERTS = new LongAdder();
+
+    private final long deadlineNanos;
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final List<Runnable> cancelHandlers = new CopyOnWriteArrayList<>();
+
+    public RequestDeadline(long timeoutMs) {
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    }
+
+    /**
+     * 当前线程绑定的截止时间，未绑定时返回null
+     */
+    public static RequestDeadline current() {
+        return CURRENT.get();
+    }
+
+    public static void bind(RequestDeadline deadline) {
+        CURRENT.set(deadline);
+    }
+
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    public long remainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+    }
+
+    /**
+     * 剩余时间折算为秒（向上取整，至少1秒），用于JDBC语句超时
+     */
+    public int remainingSecondsForStatement() {
+        return (int) Math.max(1, (remainingMillis() + 999) / 1000);
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    public boolean isExpired() {
+        return cancelled.get() || remainingMillis() <= 0;
+    }
+
+    /**
+     * 已取消或已超时时抛出异常
+     * @param stage 所处阶段（用于异常信息）
+     */
+    public void checkActive(String stage) {
+        if (isExpired()) {
+            throw new DeadlineExceededException((cancelled.get() ? "请求已取消：" : "请求已超时：") + stage);
+        }
+    }
+
+    /**
+     * 取消请求：依次执行已登记的取消动作（如中止进行中的HTTP交换）
+     */
+    public void cancel() {
+        if (cancelled.compareAndSet(false, true)) {
+            for (Runnable handler : cancelHandlers) {
+                handler.run();
+            }
+        }
+    }
+
+    /**
+     * 登记取消动作；已取消时立即执行
+     * @return 注销句柄，动作不再需要时调用
+     */
+    public Runnable onCancel(Runnable handler) {
+        cancelHandlers.add(handler);
+        if (cancelled.get() && cancelHandlers.remove(handler)) {
+            handler.run();
+        }
+        return () -> cancelHandlers.remove(handler);
+    }
+
+    // ------------------------------ 统计 ------------------------------
+
+    public static void recordAbortedRequest() { ABORTED_REQUESTS.increment(); }
+    public static void recordSkippedCall() { SKIPPED_CALLS.increment(); }
+    public static void recordCancelledExchange() { CANCELLED_EXCHANGES.increment(); }
+    public static void recordSkippedInsert() { SKIPPED_INSERTS.increment(); }
+
+    public static Map<String, Object> metricsSnapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("abortedRequests", ABORTED_REQUESTS.sum());
+        snapshot.put("skippedAiCalls", SKIPPED_CALLS.sum());
+        snapshot.put("cancelledAiExchanges", CANCELLED_EXCHANGES.sum());
+        snapshot.put("skippedInserts", SKIPPED_INSERTS.sum());
+        return snapshot;
+    }
+
+    /**
+     * 截止时间已过或请求已取消
+     */
+    public static class DeadlineExceededException extends RuntimeException {
+        public DeadlineExceededException(String message) { super(message); }
+    }
+}
@@ -0,0 +1,15 @@
+-- /recommend 幂等键：记录请求处理状态，供客户端重试时复用结果（多节点共享）
+CREATE TABLE IF NOT EXISTS idempotency_key (
+    user_id      BIGINT      NOT NULL DEFAULT 0 COMMENT '用户ID（幂等键按用户隔离）',
+    idem_key     VARCHAR(64) NOT NULL COMMENT '客户端传入的Idempotency-Key',
+    request_hash CHAR(64)    NOT NULL COMMENT '请求体摘要，防止同一键用于不同请求',
+    state        TINYINT     NOT NULL COMMENT '状态 0=处理中 1=完成 2=失败',
+    owner        VARCHAR(64) NOT NULL COMMENT '当前处理节点',
+    lease_until  DATETIME(3) NOT NULL COMMENT '处理租约到期时间，过期后其他节点可接管',
+    profile_id   BIGINT      NULL COMMENT '结果：健康画像ID',
+    recipe_id    BIGINT      NULL COMMENT '结果：首推药膳ID',
+    expire_time  DATETIME    NOT NULL COMMENT '过期时间（TTL清理）',
+    PRIMARY KEY (user_id, idem_key),
+    KEY idx_expire (expire_time),
+    KEY idx_recipe (recipe_id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '推荐请求幂等键';
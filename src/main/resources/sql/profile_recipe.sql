@@ -0,0 +1,11 @@
+-- 健康画像与药膳的关联表：一次生成的多款候选药膳均关联到同一健康画像
+CREATE TABLE IF NOT EXISTS profile_recipe (
+    id           BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
+    profile_id   BIGINT   NOT NULL COMMENT '健康画像ID',
+    recipe_id    BIGINT   NOT NULL COMMENT '药膳ID',
+    rank_no      INT      NOT NULL COMMENT '候选顺序（0为首推）',
+    served       TINYINT  NOT NULL DEFAULT 0 COMMENT '是否已推送给用户 1=是 0=否',
+    created_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    KEY idx_profile_served (profile_id, served, rank_no),
+    KEY idx_recipe (recipe_id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 COMMENT = '健康画像-药膳关联';
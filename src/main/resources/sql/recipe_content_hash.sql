@@ -0,0 +1,14 @@
+-- 药膳内容指纹：名称+成分集合的规范化哈希，相同药膳只存一份
+-- 唯一约束只作用于有效药膳：valid_content_hash在停用后为NULL，管理员停用的药膳不会再被新生成的同款药膳关联，
+-- 同款药膳会作为新的规范药膳写入（停用行保留原指纹以便追溯；重新启用前须先合并）。
+-- 存量数据在回填前为NULL（唯一索引允许多个NULL），被合并的重复行在关联改指向规范药膳后删除
+ALTER TABLE recipe
+    ADD COLUMN content_hash CHAR(64) NULL COMMENT '规范化名称+成分集合的SHA-256',
+    ADD COLUMN valid_content_hash CHAR(64) AS (IF(is_valid = 1, content_hash, NULL)) STORED COMMENT '有效药膳的内容指纹',
+    ADD KEY idx_content_hash (content_hash),
+    ADD UNIQUE KEY uk_valid_content_hash (valid_content_hash);
+
+-- 关联到规范药膳时，为该画像生成的禁忌与功效说明与规范药膳不同则保存在关联上（读取时优先于药膳本身的说明）
+ALTER TABLE profile_recipe
+    ADD COLUMN taboo  TEXT NULL COMMENT '为该画像生成的禁忌说明（与规范药膳相同时为NULL）',
+    ADD COLUMN effect TEXT NULL COMMENT '为该画像生成的功效说明（与规范药膳相同时为NULL）';
@@ -0,0 +1,92 @@
+package com.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 持久层钉住检查：虚拟线程经HikariCP取连接（连接数少于并发数，须排队等待）并在Connector/J上执行阻塞查询，
+ * 不应产生钉住事件。需要MySQL实例，以 -Dpinning.jdbc-url=jdbc:mysql://… 指定（另可设 pinning.username/password），
+ * 并以 -Pvirtual-threads 构建（Connector/J 9.x、HikariCP 5.1.0）；默认依赖版本在Socket读写与取连接时都会钉住
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+class VirtualThreadJdbcPinningTest {
+
+    private static final int CONCURRENCY = 64;
+    private static final int POOL_SIZE = 4;
+    private static final String QUERY = "SELECT SLEEP(0.05)";
+
+    @Test
+    void hikariAndConnectorJDoNotPinCarrierThreads() throws Exception {
+        String jdbcUrl = System.getProperty("pinning.jdbc-url");
+        assumeTrue(jdbcUrl != null && !jdbcUrl.isEmpty(), "未指定 -Dpinning.jdbc-url，跳过");
+        assumeTrue(Runtime.version().feature() < 24, "JDK24起synchronized中阻塞不再钉住载体线程");
+
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(jdbcUrl);
+        config.setUsername(System.getProperty("pinning.username", "root"));
+        config.setPassword(System.getProperty("pinning.password", "root"));
+        config.setMaximumPoolSize(POOL_SIZE);
+        config.setConnectionTimeout(30_000);
+
+        DeepSeekProperties properties = new DeepSeekProperties();
+        properties.getVirtualThreads().setPinnedThresholdMs(20);
+        VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor();
+        ReflectionTestUtils.setField(monitor, "properties", properties);
+
+        try (HikariDataSource dataSource = new HikariDataSource(config)) {
+            try (Connection connection = dataSource.getConnection()) {
+                assumeTrue(connection.getMetaData().getDriverMajorVersion() >= 9,
+                        "Connector/J " + connection.getMetaData().getDriverVersion() + "会钉住载体线程，需以 -Pvirtual-threads 运行");
+            }
+            monitor.start();
+            try {
+                AtomicInteger ok = new AtomicInteger();
+                List<Thread> threads = new ArrayList<>(CONCURRENCY);
+                for (int i = 0; i < CONCURRENCY; i++) {
+                    threads.add(startVirtual(() -> {
+                        try (Connection connection = dataSource.getConnection();
+                             Statement statement = connection.createStatement();
+                             ResultSet rs = statement.executeQuery(QUERY)) {
+                            if (rs.next()) {
+                                ok.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }));
+                }
+                for (Thread thread : threads) {
+                    thread.join(TimeUnit.SECONDS.toMillis(60));
+                }
+                assertEquals(CONCURRENCY, ok.get(), "所有查询均完成");
+                // JFR事件异步投递，留出到达时间
+                Thread.sleep(2_000);
+                assertEquals(0L, monitor.metricsSnapshot().get("pinnedEvents"), "取连接与执行查询时不钉住载体线程");
+            } finally {
+                monitor.stop();
+            }
+        }
+    }
+
+    /**
+     * 以反射调用，保证在JDK17下仍可编译
+     */
+    private static Thread startVirtual(Runnable task) throws Exception {
+        return (Thread) Thread.class.getMethod("startVirtualThread", Runnable.class).invoke(null, task);
+    }
+}
@@ -0,0 +1,83 @@
+package com.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 钉住诊断：虚拟线程在synchronized中阻塞会被记录，改用ReentrantLock后不再钉住载体线程
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+class VirtualThreadPinningMonitorTest {
+
+    private static final long HOLD_MS = 100;
+
+    @Test
+    void reportsSynchronizedBlockingButNotReentrantLock() throws Exception {
+        assumeTrue(Runtime.version().feature() < 24, "JDK24起synchronized中阻塞不再钉住载体线程");
+
+        DeepSeekProperties properties = new DeepSeekProperties();
+        properties.getVirtualThreads().setPinnedThresholdMs(20);
+        VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor();
+        ReflectionTestUtils.setField(monitor, "properties", properties);
+        monitor.start();
+        try {
+            // 先跑ReentrantLock：持锁阻塞时虚拟线程卸载，不产生钉住事件
+            ReentrantLock lock = new ReentrantLock();
+            runVirtual(() -> {
+                lock.lock();
+                try {
+                    sleep(HOLD_MS);
+                } finally {
+                    lock.unlock();
+                }
+            });
+
+            // 再跑synchronized：持有监视器时阻塞，载体线程被钉住
+            Object monitorLock = new Object();
+            runVirtual(() -> {
+                synchronized (monitorLock) {
+                    sleep(HOLD_MS);
+                }
+            });
+
+            // JFR事件按时间顺序异步投递：等到synchronized的事件到达时，之前若有ReentrantLock的事件也已到达
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (pinnedEvents(monitor) < 1 && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(1L, pinnedEvents(monitor), "只有synchronized中的阻塞被记录为钉住");
+            assertTrue((Long) monitor.metricsSnapshot().get("pinnedMillisTotal") >= HOLD_MS / 2, "记录钉住时长");
+        } finally {
+            monitor.stop();
+        }
+    }
+
+    private static long pinnedEvents(VirtualThreadPinningMonitor monitor) {
+        return (Long) monitor.metricsSnapshot().get("pinnedEvents");
+    }
+
+    /**
+     * 在虚拟线程中执行并等待结束（以反射调用，保证在JDK17下仍可编译）
+     */
+    private static void runVirtual(Runnable task) throws Exception {
+        Thread thread = (Thread) Thread.class.getMethod("startVirtualThread", Runnable.class).invoke(null, task);
+        thread.join();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
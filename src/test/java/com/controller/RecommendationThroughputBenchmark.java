@@ -0,0 +1,199 @@
+package com.controller;
+
+import com.config.DeepSeekProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mapper.InMemoryHealthProfileMapper;
+import com.mapper.InMemoryIdempotencyKeyMapper;
+import com.mapper.InMemoryProfileRecipeMapper;
+import com.mapper.InMemoryRecipeMapper;
+import com.pojo.HealthProfile;
+import com.pojo.MedicinalDiet;
+import com.service.IdempotencyService;
+import com.service.MedicinalDietService;
+import com.service.NoOpTransactionManager;
+import com.service.SimilarRecipeService;
+import com.util.DeepSeekClient;
+import com.util.DeepSeekTransport;
+import com.util.RequestDeadline;
+import com.util.StubDeepSeekServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 推荐全链路吞吐（本地桩服务，mvn test -Pbenchmark）：1000个并发推荐经 控制器 → 幂等 → 推荐服务 → DeepSeekClient →
+ * DeepSeekTransport → 桩服务，推荐处理线程按application.yml配置：
+ * 平台线程模式为32个工作线程的applicationTaskExecutor，虚拟线程模式（JDK21+）每个推荐一个虚拟线程。
+ * 持久层为内存表（不含MySQL与连接池，二者的钉住见VirtualThreadJdbcPinningTest），准入拦截器不在路径上
+ */
+@Tag("benchmark")
+class RecommendationThroughputBenchmark {
+
+    private static final int CONCURRENCY = 1000;
+    private static final int PLATFORM_WORKERS = 32;   // spring.task.execution.pool.core-size
+    private static final long STUB_DELAY_MS = 200;
+
+    private static StubDeepSeekServer stub;
+
+    @BeforeAll
+    static void startStub() throws Exception {
+        stub = StubDeepSeekServer.http(STUB_DELAY_MS);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @Test
+    void platformWorkersCompleteEveryRecommendation() throws Exception {
+        int before = stub.completions();
+        double rps = measure(platformWorkers(), "bounded");
+        System.out.printf("%d并发推荐、桩服务延迟%dms：平台线程(%d) %.0f req/s%n", CONCURRENCY, STUB_DELAY_MS, PLATFORM_WORKERS, rps);
+        assertEquals(2 * CONCURRENCY, stub.completions() - before, "每个推荐都调用了一次AI（含预热轮）");
+        // 工作线程数限制了同时等待AI的推荐数：每轮至少 CONCURRENCY / PLATFORM_WORKERS 个桩服务延迟
+        assertTrue(rps < PLATFORM_WORKERS * 1000.0 / STUB_DELAY_MS * 1.1, "平台线程吞吐受工作线程数限制");
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void virtualThreadsSustainHigherThroughputAtThousandConcurrency() throws Exception {
+        double platformRps = measure(platformWorkers(), "bounded");
+        SimpleAsyncTaskExecutor virtualWorkers = new SimpleAsyncTaskExecutor("recommend-");
+        virtualWorkers.setVirtualThreads(true);
+        double virtualRps = measure(virtualWorkers, "virtual");
+
+        System.out.printf("%d并发推荐、桩服务延迟%dms：平台线程(%d) %.0f req/s，虚拟线程 %.0f req/s%n",
+                CONCURRENCY, STUB_DELAY_MS, PLATFORM_WORKERS, platformRps, virtualRps);
+        // 平台线程约分 1000/32 轮，每轮一个桩服务延迟；虚拟线程理论上一轮完成（留出CPU开销的余量）
+        assertTrue(virtualRps > platformRps * 3, "虚拟线程吞吐应明显高于32个平台工作线程");
+    }
+
+    private static ThreadPoolTaskExecutor platformWorkers() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(PLATFORM_WORKERS);
+        executor.setThreadNamePrefix("recommend-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 以CONCURRENCY个并发推荐测量吞吐（req/s）；先完整跑一轮，排除建连与JIT的影响
+     */
+    private static double measure(AsyncTaskExecutor workers, String transportExecutor) throws Exception {
+        DeepSeekTransport transport = newTransport(transportExecutor);
+        try {
+            MedicinalDietController controller = newController(transport, workers);
+            runBatch(controller, 0);
+
+            long start = System.nanoTime();
+            runBatch(controller, CONCURRENCY);
+            long elapsed = System.nanoTime() - start;
+            return CONCURRENCY / (elapsed / (double) TimeUnit.SECONDS.toNanos(1));
+        } finally {
+            transport.shutdown();
+            if (workers instanceof ThreadPoolTaskExecutor) {
+                ((ThreadPoolTaskExecutor) workers).shutdown();
+            }
+        }
+    }
+
+    private static void runBatch(MedicinalDietController controller, int userOffset) throws Exception {
+        CountDownLatch done = new CountDownLatch(CONCURRENCY);
+        AtomicInteger ok = new AtomicInteger();
+        for (int i = 0; i < CONCURRENCY; i++) {
+            long userId = userOffset + i + 1L;
+            DeferredResult<ResponseEntity<MedicinalDiet>> result = controller.recommend(profile(), 1,
+                    "throughput-" + userId, userId, new RequestDeadline(60_000), null);
+            result.setResultHandler(value -> {
+                if (((ResponseEntity<?>) value).getStatusCode().value() == 200) {
+                    ok.incrementAndGet();
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(120, TimeUnit.SECONDS), "所有推荐在时限内返回");
+        assertEquals(CONCURRENCY, ok.get(), "所有推荐均成功");
+    }
+
+    private static MedicinalDietController newController(DeepSeekTransport transport, AsyncTaskExecutor workers) {
+        DeepSeekProperties properties = new DeepSeekProperties();
+        properties.getSimilarity().setEnabled(false);
+
+        DeepSeekClient client = new DeepSeekClient();
+        ReflectionTestUtils.setField(client, "API_URL", stub.completionsUri().toString());
+        ReflectionTestUtils.setField(client, "transport", transport);
+        ReflectionTestUtils.setField(client, "properties", properties);
+        client.init();
+
+        InMemoryHealthProfileMapper healthProfileMapper = new InMemoryHealthProfileMapper();
+        InMemoryRecipeMapper recipeMapper = new InMemoryRecipeMapper();
+        InMemoryProfileRecipeMapper profileRecipeMapper = new InMemoryProfileRecipeMapper(healthProfileMapper, recipeMapper);
+        SimilarRecipeService similarRecipeService = new SimilarRecipeService();
+        ReflectionTestUtils.setField(similarRecipeService, "properties", properties);
+
+        MedicinalDietService dietService = new MedicinalDietService();
+        ReflectionTestUtils.setField(dietService, "healthProfileMapper", healthProfileMapper);
+        ReflectionTestUtils.setField(dietService, "recipeMapper", recipeMapper);
+        ReflectionTestUtils.setField(dietService, "profileRecipeMapper", profileRecipeMapper);
+        ReflectionTestUtils.setField(dietService, "deepSeekClient", client);
+        ReflectionTestUtils.setField(dietService, "properties", properties);
+        ReflectionTestUtils.setField(dietService, "similarRecipeService", similarRecipeService);
+        ReflectionTestUtils.setField(dietService, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        ReflectionTestUtils.setField(dietService, "transactionTemplate", new TransactionTemplate(new NoOpTransactionManager()));
+        ReflectionTestUtils.setField(dietService, "objectMapper", new ObjectMapper());
+
+        IdempotencyService idempotencyService = new IdempotencyService();
+        ReflectionTestUtils.setField(idempotencyService, "idempotencyKeyMapper", new InMemoryIdempotencyKeyMapper());
+        ReflectionTestUtils.setField(idempotencyService, "recipeMapper", recipeMapper);
+        ReflectionTestUtils.setField(idempotencyService, "profileRecipeMapper", profileRecipeMapper);
+        ReflectionTestUtils.setField(idempotencyService, "properties", properties);
+
+        MedicinalDietController controller = new MedicinalDietController();
+        ReflectionTestUtils.setField(controller, "dietService", dietService);
+        ReflectionTestUtils.setField(controller, "idempotencyService", idempotencyService);
+        ReflectionTestUtils.setField(controller, "taskExecutor", workers);
+        ReflectionTestUtils.setField(controller, "objectMapper", new ObjectMapper());
+        return controller;
+    }
+
+    private static DeepSeekTransport newTransport(String executor) throws Exception {
+        DeepSeekProperties properties = new DeepSeekProperties();
+        // 桩服务只支持HTTP/1.1
+        properties.getHttp().setVersion("HTTP_1_1");
+        properties.getHttp().setExecutor(executor);
+        properties.getHttp().setWarmupEnabled(false);
+        DeepSeekTransport transport = new DeepSeekTransport();
+        ReflectionTestUtils.setField(transport, "properties", properties);
+        transport.init();
+        return transport;
+    }
+
+    private static HealthProfile profile() {
+        return HealthProfile.builder()
+                .age(45)
+                .gender(1)
+                .bloodPressure(1)
+                .bloodSugar(0)
+                .symptoms("[\"乏力\",\"失眠\"]")
+                .build();
+    }
+}
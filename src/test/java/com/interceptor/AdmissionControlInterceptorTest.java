@@ -0,0 +1,133 @@
+package com.interceptor;
+
+import com.config.DeepSeekProperties;
+import jakarta.servlet.DispatcherType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 推荐请求准入：过载时返回503与按预计等待折算的Retry-After，许可在请求结束或处理线程结束后归还
+ */
+class AdmissionControlInterceptorTest {
+
+    private DeepSeekProperties properties;
+    private AdmissionControlInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DeepSeekProperties();
+        DeepSeekProperties.Admission cfg = properties.getAdmission();
+        cfg.setMaxConcurrent(1);
+        cfg.setMaxQueue(0);
+        cfg.setInitialServiceMs(2_500);
+        interceptor = new AdmissionControlInterceptor();
+        ReflectionTestUtils.setField(interceptor, "properties", properties);
+        interceptor.init();
+    }
+
+    @Test
+    void overloadIsRejectedWith503AndRetryAfter() throws Exception {
+        MockHttpServletRequest first = recommend(1L);
+        assertTrue(interceptor.preHandle(first, new MockHttpServletResponse(), null));
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(recommend(2L), rejected, null));
+        assertEquals(503, rejected.getStatus());
+        assertEquals("3", rejected.getHeader("Retry-After"), "预计等待2500ms向上取整为3秒");
+        assertTrue(rejected.getContentAsString().contains("SERVER_BUSY"));
+        assertEquals(1L, interceptor.metricsSnapshot().get("shed"));
+
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+        assertEquals(0, interceptor.metricsSnapshot().get("running"), "请求结束后归还许可");
+        MockHttpServletRequest retry = recommend(2L);
+        assertTrue(interceptor.preHandle(retry, new MockHttpServletResponse(), null), "重试时已有空闲名额");
+        interceptor.afterCompletion(retry, new MockHttpServletResponse(), null, null);
+    }
+
+    @Test
+    void retryAfterIsCappedAtOneMinute() throws Exception {
+        properties.getAdmission().setInitialServiceMs(600_000);
+        interceptor.init();
+        MockHttpServletRequest first = recommend(1L);
+        interceptor.preHandle(first, new MockHttpServletResponse(), null);
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        interceptor.preHandle(recommend(2L), rejected, null);
+        assertEquals("60", rejected.getHeader("Retry-After"));
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+    }
+
+    @Test
+    void asyncDispatchDoesNotAcquireAgain() throws Exception {
+        MockHttpServletRequest first = recommend(1L);
+        interceptor.preHandle(first, new MockHttpServletResponse(), null);
+
+        MockHttpServletRequest dispatch = recommend(1L);
+        dispatch.setDispatcherType(DispatcherType.ASYNC);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertTrue(interceptor.preHandle(dispatch, response, null), "异步分派直接放行");
+        assertNull(response.getHeader("Retry-After"));
+        assertEquals(1, interceptor.metricsSnapshot().get("running"));
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+    }
+
+    @Test
+    void handedOffPermitIsHeldUntilTheWorkerFinishes() throws Exception {
+        MockHttpServletRequest request = recommend(1L);
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, null);
+
+        // 处理方接管许可后开始异步处理
+        AdmissionControlInterceptor.Permit permit =
+                (AdmissionControlInterceptor.Permit) request.getAttribute(AdmissionControlInterceptor.PERMIT_ATTR);
+        permit.handOff();
+        request.startAsync(request, response);
+        interceptor.afterConcurrentHandlingStarted(request, response, null);
+
+        // 异步周期因超时先结束，处理线程仍在调用AI
+        request.getAsyncContext().complete();
+        assertEquals(1, interceptor.metricsSnapshot().get("running"), "超时返回后许可仍被处理线程占用");
+        assertFalse(interceptor.preHandle(recommend(2L), new MockHttpServletResponse(), null), "新请求不能与之叠加");
+
+        // 处理线程结束时归还，重复归还无效
+        permit.release();
+        permit.release();
+        assertEquals(0, interceptor.metricsSnapshot().get("running"));
+        MockHttpServletRequest next = recommend(2L);
+        assertTrue(interceptor.preHandle(next, new MockHttpServletResponse(), null));
+        interceptor.afterCompletion(next, new MockHttpServletResponse(), null, null);
+        assertEquals(0, interceptor.metricsSnapshot().get("running"));
+    }
+
+    @Test
+    void permitNotHandedOffIsReleasedWhenAsyncCompletes() throws Exception {
+        MockHttpServletRequest request = recommend(1L);
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, null);
+        request.startAsync(request, response);
+        interceptor.afterConcurrentHandlingStarted(request, response, null);
+        assertEquals(1, interceptor.metricsSnapshot().get("running"));
+
+        request.getAsyncContext().complete();
+        assertEquals(0, interceptor.metricsSnapshot().get("running"), "异步周期结束时归还");
+        // 异步分派结束时不再重复归还
+        interceptor.afterCompletion(request, response, null, null);
+        assertEquals(0, interceptor.metricsSnapshot().get("running"));
+    }
+
+    private static MockHttpServletRequest recommend(Long userId) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/medicinal-diet/recommend");
+        request.setAttribute(LoginCheckInterceptor.USER_ID_ATTR, userId);
+        return request;
+    }
+}
@@ -0,0 +1,116 @@
+package com.interceptor;
+
+import com.config.DeepSeekProperties;
+import com.util.RequestDeadline;
+import jakarta.servlet.DispatcherType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 请求截止时间：按接口默认值，或取请求头中的相对超时/绝对截止时间，并限制在上下限之间
+ */
+class RequestDeadlineInterceptorTest {
+
+    private static final String RECOMMEND = "/api/medicinal-diet/recommend";
+
+    private RequestDeadlineInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        DeepSeekProperties properties = new DeepSeekProperties();
+        DeepSeekProperties.Deadline cfg = properties.getDeadline();
+        cfg.setDefaultMs(10_000);
+        cfg.setMinMs(1_000);
+        cfg.setMaxMs(60_000);
+        cfg.getEndpoints().put(RECOMMEND, 45_000L);
+        interceptor = new RequestDeadlineInterceptor();
+        ReflectionTestUtils.setField(interceptor, "properties", properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestDeadline.unbind();
+    }
+
+    @Test
+    void endpointDefaultsApplyWithoutHeaders() {
+        assertRemaining(45_000, handle(request(RECOMMEND)));
+        assertRemaining(10_000, handle(request("/api/medicinal-diet/search")));
+    }
+
+    @Test
+    void relativeTimeoutHeaderOverridesTheEndpointDefault() {
+        MockHttpServletRequest request = request(RECOMMEND);
+        request.addHeader(RequestDeadlineInterceptor.TIMEOUT_HEADER, " 3000 ");
+        assertRemaining(3_000, handle(request));
+    }
+
+    @Test
+    void absoluteDeadlineHeaderIsConvertedToRemainingTime() {
+        MockHttpServletRequest request = request(RECOMMEND);
+        request.addHeader(RequestDeadlineInterceptor.DEADLINE_HEADER, String.valueOf(System.currentTimeMillis() + 5_000));
+        assertRemaining(5_000, handle(request));
+    }
+
+    @Test
+    void invalidHeaderFallsBackToTheEndpointDefault() {
+        MockHttpServletRequest request = request(RECOMMEND);
+        request.addHeader(RequestDeadlineInterceptor.TIMEOUT_HEADER, "5s");
+        assertRemaining(45_000, handle(request));
+    }
+
+    @Test
+    void headerValuesAreClampedToTheConfiguredRange() {
+        MockHttpServletRequest tooLong = request(RECOMMEND);
+        tooLong.addHeader(RequestDeadlineInterceptor.TIMEOUT_HEADER, "600000");
+        assertRemaining(60_000, handle(tooLong));
+
+        MockHttpServletRequest negative = request(RECOMMEND);
+        negative.addHeader(RequestDeadlineInterceptor.TIMEOUT_HEADER, "-5");
+        assertRemaining(1_000, handle(negative));
+
+        MockHttpServletRequest expired = request(RECOMMEND);
+        expired.addHeader(RequestDeadlineInterceptor.DEADLINE_HEADER, String.valueOf(System.currentTimeMillis() - 30_000));
+        assertRemaining(1_000, handle(expired));
+    }
+
+    @Test
+    void asyncDispatchKeepsTheOriginalDeadline() {
+        MockHttpServletRequest request = request(RECOMMEND);
+        RequestDeadline original = handle(request);
+        interceptor.afterConcurrentHandlingStarted(request, new MockHttpServletResponse(), null);
+        assertNull(RequestDeadline.current(), "请求线程归还容器前解除绑定");
+
+        request.setDispatcherType(DispatcherType.ASYNC);
+        request.addHeader(RequestDeadlineInterceptor.TIMEOUT_HEADER, "1000");
+        assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), null));
+        assertSame(original, request.getAttribute(RequestDeadlineInterceptor.DEADLINE_ATTR));
+        interceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+        assertNull(RequestDeadline.current());
+    }
+
+    private RequestDeadline handle(MockHttpServletRequest request) {
+        assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), null));
+        RequestDeadline deadline = (RequestDeadline) request.getAttribute(RequestDeadlineInterceptor.DEADLINE_ATTR);
+        assertSame(deadline, RequestDeadline.current(), "截止时间绑定到请求线程");
+        return deadline;
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        return new MockHttpServletRequest("POST", uri);
+    }
+
+    private static void assertRemaining(long expectedMs, RequestDeadline deadline) {
+        long remaining = deadline.remainingMillis();
+        assertTrue(remaining <= expectedMs && remaining > expectedMs - 500,
+                "剩余时间应约为" + expectedMs + "ms，实际" + remaining + "ms");
+    }
+}
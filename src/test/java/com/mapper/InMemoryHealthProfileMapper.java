@@ -0,0 +1,58 @@
+package com.mapper;
+
+import com.pojo.HealthProfile;
+import org.apache.ibatis.cursor.Cursor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 内存版健康画像表
+ */
+public class InMemoryHealthProfileMapper implements HealthProfileMapper {
+
+    private final TreeMap<Long, HealthProfile> rows = new TreeMap<>();
+    private long nextId = 1;
+
+    @Override
+    public synchronized void insertHealthProfile(HealthProfile profile) {
+        profile.setProfileId(nextId++);
+        rows.put(profile.getProfileId(), copy(profile));
+    }
+
+    @Override
+    public synchronized HealthProfile selectById(Long profileId) {
+        HealthProfile row = rows.get(profileId);
+        return row == null ? null : copy(row);
+    }
+
+    @Override
+    public Cursor<HealthProfile> cursorByCreatedTime(LocalDateTime from, LocalDateTime to) {
+        throw new UnsupportedOperationException("游标读取需要数据库连接");
+    }
+
+    @Override
+    public synchronized List<HealthProfile> selectRecent(int limit) {
+        List<HealthProfile> recent = new ArrayList<>();
+        for (HealthProfile row : rows.descendingMap().values()) {
+            if (recent.size() == limit) {
+                break;
+            }
+            recent.add(copy(row));
+        }
+        return recent;
+    }
+
+    public synchronized Map<Long, HealthProfile> rows() {
+        return new TreeMap<>(rows);
+    }
+
+    private static HealthProfile copy(HealthProfile source) {
+        return new HealthProfile(source.getProfileId(), source.getUserId(), source.getAge(), source.getGender(),
+                source.getBloodPressure(), source.getBloodSugar(), source.getSymptoms(), source.getDiseases(),
+                source.getCreatedTime());
+    }
+}
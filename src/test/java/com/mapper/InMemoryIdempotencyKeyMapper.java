@@ -0,0 +1,129 @@
+package com.mapper;
+
+import com.pojo.IdempotencyRecord;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 内存版幂等键表：按IdempotencyKeyMapper.xml的条件语义实现占用、接管与状态迁移（租约用本机时钟）
+ */
+public class InMemoryIdempotencyKeyMapper implements IdempotencyKeyMapper {
+
+    private final Map<String, Row> rows = new HashMap<>();
+
+    @Override
+    public synchronized int tryInsert(IdempotencyRecord record, long leaseSeconds, long ttlSeconds) {
+        String id = id(record.getUserId(), record.getIdemKey());
+        if (rows.containsKey(id)) {
+            return 0;
+        }
+        Row row = new Row();
+        row.record = IdempotencyRecord.builder()
+                .userId(record.getUserId())
+                .idemKey(record.getIdemKey())
+                .requestHash(record.getRequestHash())
+                .state(IdempotencyRecord.STATE_IN_PROGRESS)
+                .owner(record.getOwner())
+                .build();
+        row.leaseUntil = System.currentTimeMillis() + leaseSeconds * 1000;
+        rows.put(id, row);
+        return 1;
+    }
+
+    @Override
+    public synchronized IdempotencyRecord select(Long userId, String idemKey) {
+        Row row = rows.get(id(userId, idemKey));
+        return row == null ? null : copy(row.record);
+    }
+
+    @Override
+    public synchronized int claim(Long userId, String idemKey, String owner, long leaseSeconds) {
+        Row row = rows.get(id(userId, idemKey));
+        if (row == null) {
+            return 0;
+        }
+        int state = row.record.getState();
+        boolean leaseExpired = state == IdempotencyRecord.STATE_IN_PROGRESS && row.leaseUntil < System.currentTimeMillis();
+        if (state != IdempotencyRecord.STATE_FAILED && !leaseExpired) {
+            return 0;
+        }
+        row.record.setState(IdempotencyRecord.STATE_IN_PROGRESS);
+        row.record.setOwner(owner);
+        row.leaseUntil = System.currentTimeMillis() + leaseSeconds * 1000;
+        return 1;
+    }
+
+    @Override
+    public synchronized int markDone(Long userId, String idemKey, String owner, Long profileId, Long recipeId) {
+        Row row = owned(userId, idemKey, owner);
+        if (row == null) {
+            return 0;
+        }
+        row.record.setState(IdempotencyRecord.STATE_DONE);
+        row.record.setProfileId(profileId);
+        row.record.setRecipeId(recipeId);
+        return 1;
+    }
+
+    @Override
+    public synchronized int markFailed(Long userId, String idemKey, String owner) {
+        Row row = owned(userId, idemKey, owner);
+        if (row == null) {
+            return 0;
+        }
+        row.record.setState(IdempotencyRecord.STATE_FAILED);
+        return 1;
+    }
+
+    @Override
+    public synchronized int repointRecipe(Long fromRecipeId, Long toRecipeId) {
+        int updated = 0;
+        for (Row row : rows.values()) {
+            if (fromRecipeId.equals(row.record.getRecipeId())) {
+                row.record.setRecipeId(toRecipeId);
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public synchronized int deleteExpired(int limit) {
+        return 0;
+    }
+
+    /**
+     * 直接写入一条记录（模拟其他节点占用的键）
+     * @param leaseMillis 租约剩余时间，负数表示已过期
+     */
+    public synchronized void put(IdempotencyRecord record, long leaseMillis) {
+        Row row = new Row();
+        row.record = copy(record);
+        row.leaseUntil = System.currentTimeMillis() + leaseMillis;
+        rows.put(id(record.getUserId(), record.getIdemKey()), row);
+    }
+
+    private Row owned(Long userId, String idemKey, String owner) {
+        Row row = rows.get(id(userId, idemKey));
+        if (row == null || !owner.equals(row.record.getOwner())
+                || row.record.getState() != IdempotencyRecord.STATE_IN_PROGRESS) {
+            return null;
+        }
+        return row;
+    }
+
+    private static IdempotencyRecord copy(IdempotencyRecord record) {
+        return new IdempotencyRecord(record.getUserId(), record.getIdemKey(), record.getRequestHash(), record.getState(),
+                record.getOwner(), record.getProfileId(), record.getRecipeId());
+    }
+
+    private static String id(Long userId, String idemKey) {
+        return userId + ":" + idemKey;
+    }
+
+    private static final class Row {
+        private IdempotencyRecord record;
+        private long leaseUntil;
+    }
+}
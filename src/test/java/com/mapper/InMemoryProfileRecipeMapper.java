@@ -0,0 +1,189 @@
+package com.mapper;
+
+import com.pojo.HealthProfile;
+import com.pojo.MedicinalDiet;
+import com.pojo.ProfileRecipe;
+import com.pojo.RecommendationRecord;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 内存版画像-药膳关联表，与健康画像、药膳的连接查询基于对应的内存表
+ */
+public class InMemoryProfileRecipeMapper implements ProfileRecipeMapper {
+
+    private final InMemoryHealthProfileMapper profiles;
+    private final InMemoryRecipeMapper recipes;
+    private final List<ProfileRecipe> links = new ArrayList<>();
+    private long nextId = 1;
+
+    public InMemoryProfileRecipeMapper(InMemoryHealthProfileMapper profiles) {
+        this(profiles, new InMemoryRecipeMapper());
+    }
+
+    public InMemoryProfileRecipeMapper(InMemoryHealthProfileMapper profiles, InMemoryRecipeMapper recipes) {
+        this.profiles = profiles;
+        this.recipes = recipes;
+    }
+
+    @Override
+    public synchronized void insertLinks(List<ProfileRecipe> newLinks) {
+        for (ProfileRecipe link : newLinks) {
+            ProfileRecipe row = copy(link);
+            row.setId(nextId++);
+            links.add(row);
+        }
+    }
+
+    @Override
+    public synchronized ProfileRecipe selectNextUnserved(Long profileId) {
+        return links.stream()
+                .filter(link -> link.getProfileId().equals(profileId) && link.getServed() == 0)
+                .min(Comparator.comparing(ProfileRecipe::getRankNo))
+                .map(InMemoryProfileRecipeMapper::copy)
+                .orElse(null);
+    }
+
+    @Override
+    public synchronized Long selectLatestProfileIdWithUnserved(Long userId) {
+        Long latest = null;
+        for (ProfileRecipe link : links) {
+            HealthProfile profile = profiles.selectById(link.getProfileId());
+            if (link.getServed() == 0 && profile != null && userId.equals(profile.getUserId())
+                    && (latest == null || link.getProfileId() > latest)) {
+                latest = link.getProfileId();
+            }
+        }
+        return latest;
+    }
+
+    @Override
+    public synchronized ProfileRecipe selectLink(Long profileId, Long recipeId) {
+        for (ProfileRecipe link : links) {
+            if (link.getProfileId().equals(profileId) && link.getRecipeId().equals(recipeId)) {
+                return copy(link);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized List<Long> selectRecipeIdsByUser(Long userId) {
+        Set<Long> recipeIds = new LinkedHashSet<>();
+        for (ProfileRecipe link : links) {
+            HealthProfile profile = profiles.selectById(link.getProfileId());
+            if (profile != null && userId.equals(profile.getUserId())) {
+                recipeIds.add(link.getRecipeId());
+            }
+        }
+        return new ArrayList<>(recipeIds);
+    }
+
+    @Override
+    public synchronized int markServed(Long id) {
+        for (ProfileRecipe link : links) {
+            if (link.getId().equals(id) && link.getServed() == 0) {
+                link.setServed(1);
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void scanPrimaryRecommendations(ResultHandler<RecommendationRecord> handler) {
+        List<RecommendationRecord> records = new ArrayList<>();
+        synchronized (this) {
+            for (ProfileRecipe link : links) {
+                HealthProfile profile = profiles.selectById(link.getProfileId());
+                if (link.getRankNo() == 0 && profile != null) {
+                    records.add(RecommendationRecord.builder()
+                            .profileId(profile.getProfileId())
+                            .userId(profile.getUserId())
+                            .age(profile.getAge())
+                            .gender(profile.getGender())
+                            .bloodPressure(profile.getBloodPressure())
+                            .bloodSugar(profile.getBloodSugar())
+                            .symptoms(profile.getSymptoms())
+                            .diseases(profile.getDiseases())
+                            .createdTime(profile.getCreatedTime())
+                            .recipeId(link.getRecipeId())
+                            .build());
+                }
+            }
+        }
+        for (RecommendationRecord record : records) {
+            handler.handleResult(new SingleResult(record));
+        }
+    }
+
+    @Override
+    public synchronized int repointRecipe(Long fromRecipeId, Long toRecipeId) {
+        MedicinalDiet duplicate = recipes.selectById(fromRecipeId);
+        MedicinalDiet canonical = recipes.selectById(toRecipeId);
+        if (duplicate == null || canonical == null) {
+            return 0;
+        }
+        int updated = 0;
+        for (ProfileRecipe link : links) {
+            if (link.getRecipeId().equals(fromRecipeId)) {
+                link.setRecipeId(toRecipeId);
+                if (link.getTaboo() == null && !Objects.equals(duplicate.getTaboo(), canonical.getTaboo())) {
+                    link.setTaboo(duplicate.getTaboo());
+                }
+                if (link.getEffect() == null && !Objects.equals(duplicate.getEffect(), canonical.getEffect())) {
+                    link.setEffect(duplicate.getEffect());
+                }
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public Cursor<RecommendationRecord> cursorRecommendations(LocalDateTime from, LocalDateTime to) {
+        throw new UnsupportedOperationException("游标读取需要数据库连接");
+    }
+
+    public synchronized List<ProfileRecipe> links() {
+        List<ProfileRecipe> copies = new ArrayList<>();
+        for (ProfileRecipe link : links) {
+            copies.add(copy(link));
+        }
+        return copies;
+    }
+
+    private static ProfileRecipe copy(ProfileRecipe source) {
+        return new ProfileRecipe(source.getId(), source.getProfileId(), source.getRecipeId(), source.getRankNo(),
+                source.getServed(), source.getTaboo(), source.getEffect(), source.getCreatedTime());
+    }
+
+    private static final class SingleResult implements ResultContext<RecommendationRecord> {
+        private final RecommendationRecord record;
+
+        private SingleResult(RecommendationRecord record) {
+            this.record = record;
+        }
+
+        @Override
+        public RecommendationRecord getResultObject() { return record; }
+
+        @Override
+        public int getResultCount() { return 1; }
+
+        @Override
+        public boolean isStopped() { return false; }
+
+        @Override
+        public void stop() { }
+    }
+}
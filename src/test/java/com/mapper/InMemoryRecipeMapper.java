@@ -0,0 +1,167 @@
+package com.mapper;
+
+import com.pojo.MedicinalDiet;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 内存版药膳表：按RecipeMapper.xml的语义实现有效药膳的内容指纹唯一、冲突时回填已有ID（影响行数0）
+ */
+public class InMemoryRecipeMapper implements RecipeMapper {
+
+    private final TreeMap<Long, MedicinalDiet> rows = new TreeMap<>();
+    private long nextId = 1;
+
+    @Override
+    public synchronized int insertRecipe(MedicinalDiet diet) {
+        Long existing = isValid(diet) ? selectIdByContentHash(diet.getContentHash()) : null;
+        if (existing != null) {
+            diet.setId(existing);
+            return 0;
+        }
+        diet.setId(nextId++);
+        rows.put(diet.getId(), copy(diet));
+        return 1;
+    }
+
+    @Override
+    public synchronized MedicinalDiet selectById(Long id) {
+        MedicinalDiet row = rows.get(id);
+        return row == null ? null : copy(row);
+    }
+
+    @Override
+    public synchronized List<MedicinalDiet> selectValidByIds(List<Long> ids) {
+        List<MedicinalDiet> result = new ArrayList<>();
+        for (Long id : ids) {
+            MedicinalDiet row = rows.get(id);
+            if (row != null && isValid(row)) {
+                result.add(copy(row));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void scanForSearch(ResultHandler<MedicinalDiet> handler) {
+        List<MedicinalDiet> valid;
+        synchronized (this) {
+            valid = new ArrayList<>();
+            for (MedicinalDiet row : rows.values()) {
+                if (isValid(row)) {
+                    valid.add(copy(row));
+                }
+            }
+        }
+        for (MedicinalDiet row : valid) {
+            handler.handleResult(new SingleResult(row));
+        }
+    }
+
+    @Override
+    public synchronized Long selectIdByContentHash(String contentHash) {
+        if (contentHash == null) {
+            return null;
+        }
+        for (MedicinalDiet row : rows.values()) {
+            if (isValid(row) && contentHash.equals(row.getContentHash())) {
+                return row.getId();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized List<MedicinalDiet> selectBatchAfter(long afterId, int limit) {
+        List<MedicinalDiet> batch = new ArrayList<>();
+        for (MedicinalDiet row : rows.tailMap(afterId, false).values()) {
+            if (batch.size() == limit) {
+                break;
+            }
+            if (isValid(row)) {
+                batch.add(copy(row));
+            }
+        }
+        return batch;
+    }
+
+    @Override
+    public synchronized int updateContentHash(Long id, String contentHash) {
+        MedicinalDiet row = rows.get(id);
+        if (row == null) {
+            return 0;
+        }
+        Long existing = selectIdByContentHash(contentHash);
+        if (isValid(row) && existing != null && !existing.equals(id)) {
+            throw new DuplicateKeyException("Duplicate entry '" + contentHash + "' for key 'uk_valid_content_hash'");
+        }
+        row.setContentHash(contentHash);
+        return 1;
+    }
+
+    @Override
+    public synchronized int deleteById(Long id) {
+        return rows.remove(id) == null ? 0 : 1;
+    }
+
+    /**
+     * 直接写入一行（模拟存量数据，不校验指纹），返回分配的ID
+     */
+    public synchronized long put(MedicinalDiet diet) {
+        diet.setId(nextId++);
+        rows.put(diet.getId(), copy(diet));
+        return diet.getId();
+    }
+
+    public synchronized Map<Long, MedicinalDiet> rows() {
+        return new TreeMap<>(rows);
+    }
+
+    private static boolean isValid(MedicinalDiet row) {
+        return row.getIsValid() == null || row.getIsValid() == 1;
+    }
+
+    private static MedicinalDiet copy(MedicinalDiet source) {
+        MedicinalDiet copy = new MedicinalDiet();
+        copy.setId(source.getId());
+        copy.setName(source.getName());
+        copy.setIntro(source.getIntro());
+        copy.setIngredients(source.getIngredients());
+        copy.setMethod(source.getMethod());
+        copy.setEffect(source.getEffect());
+        copy.setType(source.getType());
+        copy.setCreateTime(source.getCreateTime());
+        copy.setIsValid(source.getIsValid());
+        copy.setTaboo(source.getTaboo());
+        copy.setSuitableTime(source.getSuitableTime());
+        copy.setTags(source.getTags() == null ? null : new ArrayList<>(source.getTags()));
+        copy.setContentHash(source.getContentHash());
+        return copy;
+    }
+
+    private static final class SingleResult implements ResultContext<MedicinalDiet> {
+        private final MedicinalDiet row;
+
+        private SingleResult(MedicinalDiet row) {
+            this.row = row;
+        }
+
+        @Override
+        public MedicinalDiet getResultObject() { return row; }
+
+        @Override
+        public int getResultCount() { return 1; }
+
+        @Override
+        public boolean isStopped() { return false; }
+
+        @Override
+        public void stop() { }
+    }
+}
@@ -0,0 +1,245 @@
+package com.service;
+
+import com.config.DeepSeekProperties;
+import com.mapper.InMemoryHealthProfileMapper;
+import com.mapper.InMemoryIdempotencyKeyMapper;
+import com.mapper.InMemoryProfileRecipeMapper;
+import com.mapper.InMemoryRecipeMapper;
+import com.pojo.HealthProfile;
+import com.pojo.IdempotencyRecord;
+import com.pojo.MedicinalDiet;
+import com.util.RequestDeadline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 幂等处理：占用、等待方轮询、租约过期接管、失败重试，以及完成标记与结果同事务写入
+ */
+class IdempotencyServiceTest {
+
+    private static final long USER_ID = 7L;
+    private static final String FINGERPRINT = "{\"age\":40}|1";
+
+    private InMemoryIdempotencyKeyMapper keyMapper;
+    private InMemoryRecipeMapper recipeMapper;
+    private DeepSeekProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        keyMapper = new InMemoryIdempotencyKeyMapper();
+        recipeMapper = new InMemoryRecipeMapper();
+        properties = new DeepSeekProperties();
+        properties.getIdempotency().setPollIntervalMs(20);
+    }
+
+    @Test
+    void firstRequestClaimsKeyAndRetryReturnsStoredResult() {
+        IdempotencyService service = newService();
+        AtomicInteger runs = new AtomicInteger();
+
+        HealthProfile first = new HealthProfile();
+        MedicinalDiet created = service.execute(USER_ID, "k1", FINGERPRINT, first, saving(runs, first, 11L));
+        assertEquals(IdempotencyRecord.STATE_DONE, keyMapper.select(USER_ID, "k1").getState());
+
+        HealthProfile retry = new HealthProfile();
+        MedicinalDiet replayed = service.execute(USER_ID, "k1", FINGERPRINT, retry, saving(runs, retry, 12L));
+        assertEquals(1, runs.get(), "重试不再执行推荐");
+        assertEquals(created.getId(), replayed.getId());
+        assertEquals(11L, retry.getProfileId(), "回填首次请求保存的画像ID");
+    }
+
+    @Test
+    void sameKeyWithDifferentBodyIsRejected() {
+        IdempotencyService service = newService();
+        HealthProfile profile = new HealthProfile();
+        service.execute(USER_ID, "k1", FINGERPRINT, profile, saving(new AtomicInteger(), profile, 11L));
+
+        assertThrows(IdempotencyService.KeyMismatchException.class,
+                () -> service.execute(USER_ID, "k1", "{\"age\":41}|1", new HealthProfile(),
+                        saving(new AtomicInteger(), new HealthProfile(), 12L)));
+    }
+
+    @Test
+    void waiterOnAnotherNodePollsUntilOwnerFinishes() throws Exception {
+        IdempotencyService owner = newService();
+        IdempotencyService otherNode = newService();
+        CountDownLatch ownerStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        HealthProfile ownerProfile = new HealthProfile();
+        CompletableFuture<MedicinalDiet> ownerResult = CompletableFuture.supplyAsync(() ->
+                owner.execute(USER_ID, "k1", FINGERPRINT, ownerProfile, onSaved -> {
+                    ownerStarted.countDown();
+                    await(release);
+                    return saving(runs, ownerProfile, 11L).run(onSaved);
+                }));
+        assertTrue(ownerStarted.await(5, TimeUnit.SECONDS));
+
+        HealthProfile waiterProfile = new HealthProfile();
+        CompletableFuture<MedicinalDiet> waiterResult = CompletableFuture.supplyAsync(() ->
+                otherNode.execute(USER_ID, "k1", FINGERPRINT, waiterProfile, saving(runs, waiterProfile, 12L)));
+        Thread.sleep(100);
+        assertFalse(waiterResult.isDone(), "处理中：等待方轮询而不是重复执行");
+
+        release.countDown();
+        MedicinalDiet expected = ownerResult.get(5, TimeUnit.SECONDS);
+        assertEquals(expected.getId(), waiterResult.get(5, TimeUnit.SECONDS).getId());
+        assertEquals(1, runs.get());
+        assertEquals(11L, waiterProfile.getProfileId());
+    }
+
+    @Test
+    void waiterGivesUpAtRequestDeadline() {
+        keyMapper.put(inProgress("other-node"), 60_000);
+        IdempotencyService service = newService();
+
+        RequestDeadline.bind(new RequestDeadline(150));
+        long start = System.nanoTime();
+        try {
+            assertThrows(RequestDeadline.DeadlineExceededException.class,
+                    () -> service.execute(USER_ID, "k1", FINGERPRINT, new HealthProfile(),
+                            saving(new AtomicInteger(), new HealthProfile(), 11L)));
+        } finally {
+            RequestDeadline.unbind();
+        }
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(waitedMs < 1_000, "等待不超过请求截止时间，实际" + waitedMs + "ms");
+    }
+
+    @Test
+    void expiredLeaseIsTakenOver() {
+        keyMapper.put(inProgress("crashed-node"), -1);
+        IdempotencyService service = newService();
+        AtomicInteger runs = new AtomicInteger();
+
+        HealthProfile profile = new HealthProfile();
+        MedicinalDiet result = service.execute(USER_ID, "k1", FINGERPRINT, profile, saving(runs, profile, 11L));
+
+        assertEquals(1, runs.get(), "处理节点失联后由本次请求重新执行");
+        IdempotencyRecord record = keyMapper.select(USER_ID, "k1");
+        assertEquals(IdempotencyRecord.STATE_DONE, record.getState());
+        assertEquals(result.getId(), record.getRecipeId());
+    }
+
+    @Test
+    void failedKeyIsRetried() {
+        IdempotencyService service = newService();
+        assertThrows(IllegalStateException.class,
+                () -> service.execute(USER_ID, "k1", FINGERPRINT, new HealthProfile(), onSaved -> {
+                    throw new IllegalStateException("AI调用失败");
+                }));
+        assertEquals(IdempotencyRecord.STATE_FAILED, keyMapper.select(USER_ID, "k1").getState());
+
+        AtomicInteger runs = new AtomicInteger();
+        HealthProfile profile = new HealthProfile();
+        service.execute(USER_ID, "k1", FINGERPRINT, profile, saving(runs, profile, 11L));
+        assertEquals(1, runs.get(), "失败的键允许重试");
+        assertEquals(IdempotencyRecord.STATE_DONE, keyMapper.select(USER_ID, "k1").getState());
+    }
+
+    @Test
+    void doneMarkerIsWrittenInsideTheSaveAndFailsItWhenKeyWasTakenOver() {
+        IdempotencyService service = newService();
+        HealthProfile profile = new HealthProfile();
+
+        // 保存回调执行前，键仍处于处理中；回调返回即已完成（与结果在同一事务内）
+        service.execute(USER_ID, "k1", FINGERPRINT, profile, onSaved -> {
+            MedicinalDiet saved = save(profile, 11L);
+            assertEquals(IdempotencyRecord.STATE_IN_PROGRESS, keyMapper.select(USER_ID, "k1").getState());
+            onSaved.accept(saved);
+            assertEquals(IdempotencyRecord.STATE_DONE, keyMapper.select(USER_ID, "k1").getState());
+            return saved;
+        });
+
+        // 处理超过租约、键已被其他节点接管：完成标记失败并抛出，由调用方回滚本次保存
+        HealthProfile late = new HealthProfile();
+        assertThrows(IdempotencyService.KeyInProgressException.class,
+                () -> service.execute(USER_ID, "k2", FINGERPRINT, late, onSaved -> {
+                    keyMapper.put(inProgress("other-node", "k2"), 60_000);
+                    MedicinalDiet saved = save(late, 12L);
+                    onSaved.accept(saved);
+                    return saved;
+                }));
+        IdempotencyRecord record = keyMapper.select(USER_ID, "k2");
+        assertEquals("other-node", record.getOwner());
+        assertEquals(IdempotencyRecord.STATE_IN_PROGRESS, record.getState());
+    }
+
+    private IdempotencyService newService() {
+        IdempotencyService service = new IdempotencyService();
+        ReflectionTestUtils.setField(service, "idempotencyKeyMapper", keyMapper);
+        ReflectionTestUtils.setField(service, "recipeMapper", recipeMapper);
+        ReflectionTestUtils.setField(service, "profileRecipeMapper",
+                new InMemoryProfileRecipeMapper(new InMemoryHealthProfileMapper(), recipeMapper));
+        ReflectionTestUtils.setField(service, "properties", properties);
+        return service;
+    }
+
+    /**
+     * 模拟推荐流程：保存画像与药膳，并在"事务内"回调onSaved
+     */
+    private IdempotencyService.RecommendAction saving(AtomicInteger runs, HealthProfile profile, long profileId) {
+        return onSaved -> {
+            runs.incrementAndGet();
+            MedicinalDiet saved = save(profile, profileId);
+            onSaved.accept(saved);
+            return saved;
+        };
+    }
+
+    private MedicinalDiet save(HealthProfile profile, long profileId) {
+        profile.setProfileId(profileId);
+        MedicinalDiet diet = new MedicinalDiet();
+        diet.setName("山药薏米粥" + profileId);
+        diet.setIsValid(1);
+        recipeMapper.insertRecipe(diet);
+        return diet;
+    }
+
+    private static IdempotencyRecord inProgress(String owner) {
+        return inProgress(owner, "k1");
+    }
+
+    private static IdempotencyRecord inProgress(String owner, String key) {
+        return IdempotencyRecord.builder()
+                .userId(USER_ID)
+                .idemKey(key)
+                .requestHash(sha256(FINGERPRINT))
+                .state(IdempotencyRecord.STATE_IN_PROGRESS)
+                .owner(owner)
+                .build();
+    }
+
+    private static String sha256(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.service;
+
+import com.config.DeepSeekProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mapper.InMemoryHealthProfileMapper;
+import com.mapper.InMemoryProfileRecipeMapper;
+import com.mapper.InMemoryRecipeMapper;
+import com.pojo.HealthProfile;
+import com.pojo.MedicinalDiet;
+import com.pojo.ProfileRecipe;
+import com.util.DeepSeekClient;
+import com.util.RecipeContentHasher;
+import com.util.RequestDeadline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 药膳去重保存：只关联有效的规范药膳，复用规范药膳时保留为本画像生成的禁忌与功效说明；
+ * 请求已失效时不再调用AI、不再写库
+ */
+class MedicinalDietServiceTest {
+
+    private static final String NAME = "山药薏米粥";
+    private static final String INGREDIENTS = "山药100g、薏米50g";
+
+    private InMemoryHealthProfileMapper healthProfileMapper;
+    private InMemoryRecipeMapper recipeMapper;
+    private InMemoryProfileRecipeMapper profileRecipeMapper;
+    private final List<DeepSeekClient.MedicinalDiet> generated = new ArrayList<>();
+    private final AtomicInteger aiCalls = new AtomicInteger();
+    // 模拟AI生成期间发生的事（如客户端断开）
+    private Runnable duringGeneration = () -> { };
+    private MedicinalDietService service;
+
+    @BeforeEach
+    void setUp() {
+        healthProfileMapper = new InMemoryHealthProfileMapper();
+        recipeMapper = new InMemoryRecipeMapper();
+        profileRecipeMapper = new InMemoryProfileRecipeMapper(healthProfileMapper, recipeMapper);
+        DeepSeekProperties properties = new DeepSeekProperties();
+        properties.getSimilarity().setEnabled(false);
+        SimilarRecipeService similarRecipeService = new SimilarRecipeService();
+        ReflectionTestUtils.setField(similarRecipeService, "properties", properties);
+
+        service = new MedicinalDietService();
+        ReflectionTestUtils.setField(service, "healthProfileMapper", healthProfileMapper);
+        ReflectionTestUtils.setField(service, "recipeMapper", recipeMapper);
+        ReflectionTestUtils.setField(service, "profileRecipeMapper", profileRecipeMapper);
+        ReflectionTestUtils.setField(service, "deepSeekClient", new DeepSeekClient() {
+            @Override
+            public List<DeepSeekClient.MedicinalDiet> generateDietRecommendations(UserHealthInfo userInfo, int count) {
+                aiCalls.incrementAndGet();
+                duringGeneration.run();
+                return generated;
+            }
+        });
+        ReflectionTestUtils.setField(service, "properties", properties);
+        ReflectionTestUtils.setField(service, "similarRecipeService", similarRecipeService);
+        ReflectionTestUtils.setField(service, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        ReflectionTestUtils.setField(service, "transactionTemplate", new TransactionTemplate(new NoOpTransactionManager()));
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+    }
+
+    @Test
+    void disabledRecipeIsNotUsedAsCanonical() {
+        Long disabledId = recipeMapper.put(stored("孕妇慎用", "健脾益胃", 0));
+        generated.add(aiDiet(NAME, "孕妇慎用", "健脾益胃"));
+
+        MedicinalDiet recommended = service.recommendAndSave(profile(), 1);
+
+        assertNotEquals(disabledId, recommended.getId(), "不关联已停用的同款药膳");
+        assertEquals(1, recipeMapper.rows().get(recommended.getId()).getIsValid());
+        assertEquals(recommended.getId(), profileRecipeMapper.links().get(0).getRecipeId());
+    }
+
+    @Test
+    void reusedCanonicalKeepsTheTextGeneratedForThisProfile() {
+        long canonicalId = recipeMapper.put(stored("孕妇慎用", "健脾益胃", 1));
+        generated.add(aiDiet("百合莲子汤", "无", "养心安神"));
+        generated.add(aiDiet(NAME, "孕妇慎用；高血压者忌加盐", "健脾益胃，兼顾血压"));
+        HealthProfile profile = profile();
+
+        service.recommendAndSave(profile, 2);
+
+        ProfileRecipe link = profileRecipeMapper.selectLink(profile.getProfileId(), canonicalId);
+        assertEquals("孕妇慎用；高血压者忌加盐", link.getTaboo());
+        assertEquals("健脾益胃，兼顾血压", link.getEffect());
+        assertEquals("孕妇慎用", recipeMapper.selectById(canonicalId).getTaboo(), "规范药膳本身不被改写");
+
+        MedicinalDiet next = service.nextAlternative(profile.getUserId(), profile.getProfileId());
+        assertEquals(canonicalId, next.getId());
+        assertEquals("孕妇慎用；高血压者忌加盐", next.getTaboo(), "读取时以关联上的说明为准");
+        assertEquals("健脾益胃，兼顾血压", next.getEffect());
+    }
+
+    @Test
+    void identicalTextIsNotCopiedOntoTheLink() {
+        long canonicalId = recipeMapper.put(stored("孕妇慎用", "健脾益胃", 1));
+        generated.add(aiDiet(NAME, "孕妇慎用", "健脾益胃"));
+        HealthProfile profile = profile();
+
+        MedicinalDiet recommended = service.recommendAndSave(profile, 1);
+
+        assertEquals(canonicalId, recommended.getId());
+        ProfileRecipe link = profileRecipeMapper.selectLink(profile.getProfileId(), canonicalId);
+        assertNull(link.getTaboo());
+        assertNull(link.getEffect());
+    }
+
+    @Test
+    void expiredRequestSkipsTheAiCall() {
+        long skippedBefore = counter("skippedAiCalls");
+        generated.add(aiDiet(NAME, "孕妇慎用", "健脾益胃"));
+
+        RequestDeadline.bind(new RequestDeadline(-1));
+        try {
+            assertThrows(RequestDeadline.DeadlineExceededException.class, () -> service.recommendAndSave(profile(), 1));
+        } finally {
+            RequestDeadline.unbind();
+        }
+
+        assertEquals(skippedBefore + 1, counter("skippedAiCalls"));
+        assertEquals(0, aiCalls.get());
+    }
+
+    @Test
+    void requestCancelledDuringGenerationIsNotSaved() {
+        long skippedBefore = counter("skippedInserts");
+        generated.add(aiDiet(NAME, "孕妇慎用", "健脾益胃"));
+        RequestDeadline deadline = new RequestDeadline(30_000);
+        duringGeneration = deadline::cancel;
+
+        RequestDeadline.bind(deadline);
+        try {
+            assertThrows(RequestDeadline.DeadlineExceededException.class, () -> service.recommendAndSave(profile(), 1));
+        } finally {
+            RequestDeadline.unbind();
+        }
+
+        assertEquals(skippedBefore + 1, counter("skippedInserts"));
+        assertTrue(recipeMapper.rows().isEmpty(), "客户端已放弃，不再写库");
+        assertTrue(profileRecipeMapper.links().isEmpty());
+    }
+
+    private static long counter(String name) {
+        return (Long) RequestDeadline.metricsSnapshot().get(name);
+    }
+
+    private static HealthProfile profile() {
+        return HealthProfile.builder()
+                .userId(1L)
+                .age(45)
+                .gender(1)
+                .bloodPressure(1)
+                .bloodSugar(0)
+                .symptoms("[\"乏力\"]")
+                .build();
+    }
+
+    private static MedicinalDiet stored(String taboo, String effect, int isValid) {
+        MedicinalDiet diet = new MedicinalDiet();
+        diet.setName(NAME);
+        diet.setIngredients(INGREDIENTS);
+        diet.setTaboo(taboo);
+        diet.setEffect(effect);
+        diet.setIsValid(isValid);
+        diet.setContentHash(RecipeContentHasher.hash(NAME, INGREDIENTS));
+        return diet;
+    }
+
+    private static DeepSeekClient.MedicinalDiet aiDiet(String name, String taboo, String reason) {
+        DeepSeekClient.MedicinalDiet diet = new DeepSeekClient.MedicinalDiet();
+        diet.setName(name);
+        diet.setIngredients(NAME.equals(name) ? List.of("山药100g", "薏米50g") : List.of("百合30g", "莲子20g"));
+        diet.setSteps(List.of("洗净", "煮粥"));
+        diet.setTaboo(taboo);
+        diet.setReason(reason);
+        diet.setSuitableTime("早餐");
+        diet.setTags(List.of("健脾"));
+        return diet;
+    }
+}
@@ -0,0 +1,171 @@
+package com.service;
+
+import com.config.DeepSeekProperties;
+import com.event.RecipeCollapsedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mapper.InMemoryHealthProfileMapper;
+import com.mapper.InMemoryIdempotencyKeyMapper;
+import com.mapper.InMemoryProfileRecipeMapper;
+import com.mapper.InMemoryRecipeMapper;
+import com.pojo.HealthProfile;
+import com.pojo.IdempotencyRecord;
+import com.pojo.MedicinalDiet;
+import com.pojo.ProfileRecipe;
+import com.util.RecipeContentHasher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 存量去重回填：重复药膳的推荐关联与幂等结果改指向规范药膳（保留不同的禁忌说明）后删除，
+ * 已停用的同款药膳不作为规范药膳，内存索引在合并后移除或改指向重复药膳
+ */
+class RecipeDedupBackfillJobTest {
+
+    private static final String NAME = "红枣粳米粥";
+    private static final String SYMPTOMS = "[\"乏力\",\"食欲不振\"]";
+
+    private InMemoryHealthProfileMapper healthProfileMapper;
+    private InMemoryRecipeMapper recipeMapper;
+    private InMemoryProfileRecipeMapper profileRecipeMapper;
+    private InMemoryIdempotencyKeyMapper idempotencyKeyMapper;
+    private final List<Object> events = new ArrayList<>();
+    private RecipeDedupBackfillJob job;
+
+    @BeforeEach
+    void setUp() {
+        healthProfileMapper = new InMemoryHealthProfileMapper();
+        recipeMapper = new InMemoryRecipeMapper();
+        profileRecipeMapper = new InMemoryProfileRecipeMapper(healthProfileMapper, recipeMapper);
+        idempotencyKeyMapper = new InMemoryIdempotencyKeyMapper();
+        DeepSeekProperties properties = new DeepSeekProperties();
+        properties.getDedup().setBatchSize(2);
+
+        job = new RecipeDedupBackfillJob();
+        ReflectionTestUtils.setField(job, "recipeMapper", recipeMapper);
+        ReflectionTestUtils.setField(job, "profileRecipeMapper", profileRecipeMapper);
+        ReflectionTestUtils.setField(job, "idempotencyKeyMapper", idempotencyKeyMapper);
+        ReflectionTestUtils.setField(job, "transactionTemplate", new TransactionTemplate(new NoOpTransactionManager()));
+        ReflectionTestUtils.setField(job, "properties", properties);
+        ReflectionTestUtils.setField(job, "eventPublisher", (ApplicationEventPublisher) events::add);
+    }
+
+    @Test
+    void duplicatesAreRepointedToTheFirstValidRecipeAndDeleted() {
+        long disabled = recipeMapper.put(recipe("红枣5颗、粳米100g", "孕妇慎用", 0,
+                RecipeContentHasher.hash(NAME, "红枣5颗、粳米100g")));
+        long canonical = recipeMapper.put(recipe("红枣5颗、粳米100g", "孕妇慎用", 1, null));
+        long duplicate = recipeMapper.put(recipe("粳米50g，红枣10颗（去核）", "孕妇慎用；湿热体质者少食", 1, null));
+        long unrelated = recipeMapper.put(recipe("山药100g、薏米50g", "无", 1, null));
+
+        long canonicalProfile = linked(canonical);
+        long duplicateProfile = linked(duplicate);
+        idempotencyKeyMapper.put(new IdempotencyRecord(2L, "key-1", "hash", IdempotencyRecord.STATE_DONE,
+                "node-1", duplicateProfile, duplicate), 60_000);
+
+        job.run();
+
+        assertEquals(List.of(disabled, canonical, unrelated), new ArrayList<>(recipeMapper.rows().keySet()),
+                "重复行已删除，停用行保留");
+        assertEquals(RecipeContentHasher.hash(NAME, "红枣5颗、粳米100g"), recipeMapper.rows().get(canonical).getContentHash());
+
+        ProfileRecipe repointed = profileRecipeMapper.selectLink(duplicateProfile, canonical);
+        assertEquals("孕妇慎用；湿热体质者少食", repointed.getTaboo(), "重复药膳不同的禁忌说明保留在关联上");
+        assertNull(repointed.getEffect(), "相同的功效说明不复制");
+        assertNull(profileRecipeMapper.selectLink(canonicalProfile, canonical).getTaboo());
+        assertNull(profileRecipeMapper.selectLink(duplicateProfile, duplicate));
+        assertEquals(canonical, idempotencyKeyMapper.select(2L, "key-1").getRecipeId(), "幂等结果改指向规范药膳");
+
+        assertEquals(1, events.size());
+        RecipeCollapsedEvent event = (RecipeCollapsedEvent) events.get(0);
+        assertEquals(duplicate, event.getDuplicateId());
+        assertEquals(canonical, event.getCanonicalId());
+        assertEquals(3L, job.metricsSnapshot().get("scanned"));
+        assertEquals(1L, job.metricsSnapshot().get("collapsed"));
+
+        job.run();
+        assertEquals(1, events.size(), "再次执行无重复可合并");
+    }
+
+    @Test
+    void collapsedRecipeLeavesTheInMemoryIndexes() {
+        long canonical = recipeMapper.put(recipe("红枣5颗、粳米100g", "孕妇慎用", 1, null));
+        long duplicate = recipeMapper.put(recipe("红枣10颗、粳米50g", "孕妇慎用", 1, null));
+        linked(duplicate);
+
+        DeepSeekProperties properties = new DeepSeekProperties();
+        RecipeSearchService searchService = new RecipeSearchService();
+        ReflectionTestUtils.setField(searchService, "recipeMapper", recipeMapper);
+        searchService.buildIndex();
+        SimilarRecipeService similarRecipeService = new SimilarRecipeService();
+        ReflectionTestUtils.setField(similarRecipeService, "profileRecipeMapper", profileRecipeMapper);
+        ReflectionTestUtils.setField(similarRecipeService, "recipeMapper", recipeMapper);
+        ReflectionTestUtils.setField(similarRecipeService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(similarRecipeService, "properties", properties);
+        similarRecipeService.init();
+        similarRecipeService.loadIndex();
+        assertEquals(2, searchService.metricsSnapshot().get("docs"));
+
+        job.run();
+        for (Object event : events) {
+            searchService.onRecipeCollapsed((RecipeCollapsedEvent) event);
+            similarRecipeService.onRecipeCollapsed((RecipeCollapsedEvent) event);
+        }
+
+        assertEquals(1, searchService.metricsSnapshot().get("docs"), "重复药膳移出检索索引");
+        List<MedicinalDiet> hits = searchService.search("红枣", 10);
+        assertEquals(1, hits.size());
+        assertEquals(canonical, hits.get(0).getId());
+
+        // 原指向重复药膳的画像改指向规范药膳，其他用户的相似画像仍可复用
+        MedicinalDiet reused = similarRecipeService.findReusableRecipe(profile(9L));
+        assertEquals(canonical, reused.getId());
+        assertFalse(recipeMapper.rows().containsKey(duplicate));
+        assertTrue(recipeMapper.rows().containsKey(canonical));
+    }
+
+    private long linked(long recipeId) {
+        HealthProfile profile = profile(2L);
+        healthProfileMapper.insertHealthProfile(profile);
+        profileRecipeMapper.insertLinks(List.of(ProfileRecipe.builder()
+                .profileId(profile.getProfileId())
+                .recipeId(recipeId)
+                .rankNo(0)
+                .served(1)
+                .build()));
+        return profile.getProfileId();
+    }
+
+    private static HealthProfile profile(Long userId) {
+        return HealthProfile.builder()
+                .userId(userId)
+                .age(50)
+                .gender(2)
+                .bloodPressure(0)
+                .bloodSugar(0)
+                .symptoms(SYMPTOMS)
+                .build();
+    }
+
+    private static MedicinalDiet recipe(String ingredients, String taboo, int isValid, String contentHash) {
+        MedicinalDiet recipe = new MedicinalDiet();
+        recipe.setName(NAME);
+        recipe.setIngredients(ingredients);
+        recipe.setTaboo(taboo);
+        recipe.setEffect("健脾养胃");
+        recipe.setMethod("加水煮粥");
+        recipe.setIsValid(isValid);
+        recipe.setContentHash(contentHash);
+        return recipe;
+    }
+}
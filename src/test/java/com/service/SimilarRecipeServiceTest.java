@@ -0,0 +1,137 @@
+package com.service;
+
+import com.config.DeepSeekProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mapper.InMemoryHealthProfileMapper;
+import com.mapper.InMemoryProfileRecipeMapper;
+import com.mapper.InMemoryRecipeMapper;
+import com.pojo.HealthProfile;
+import com.pojo.MedicinalDiet;
+import com.pojo.ProfileRecipe;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 相似画像复用：原样重新提交不拿回自己的药膳，禁忌说明按规范化标签比对
+ */
+class SimilarRecipeServiceTest {
+
+    private static final String SYMPTOMS = "[\"失眠\",\"乏力\",\"头晕\",\"心悸\"]";
+
+    private InMemoryHealthProfileMapper healthProfileMapper;
+    private InMemoryProfileRecipeMapper profileRecipeMapper;
+    private InMemoryRecipeMapper recipeMapper;
+    private SimilarRecipeService service;
+
+    @BeforeEach
+    void setUp() {
+        healthProfileMapper = new InMemoryHealthProfileMapper();
+        profileRecipeMapper = new InMemoryProfileRecipeMapper(healthProfileMapper);
+        recipeMapper = new InMemoryRecipeMapper();
+        service = new SimilarRecipeService();
+        ReflectionTestUtils.setField(service, "profileRecipeMapper", profileRecipeMapper);
+        ReflectionTestUtils.setField(service, "recipeMapper", recipeMapper);
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(service, "properties", new DeepSeekProperties());
+        service.init();
+    }
+
+    @Test
+    void resubmissionSkipsRecipesAlreadyLinkedToTheUser() {
+        long own = recommended(profile(1L, 40, SYMPTOMS, null), recipe("酸枣仁粥", "孕妇慎用"));
+        long neighbour = recommended(profile(2L, 42, SYMPTOMS, null), recipe("百合莲子汤", "孕妇慎用"));
+        service.loadIndex();
+
+        MedicinalDiet reused = service.findReusableRecipe(profile(1L, 40, SYMPTOMS, null));
+        assertNotNull(reused);
+        assertEquals(neighbour, reused.getId(), "跳过自己上次的药膳，取下一个相似画像");
+
+        MedicinalDiet forOtherUser = service.findReusableRecipe(profile(3L, 40, SYMPTOMS, null));
+        assertEquals(own, forOtherUser.getId(), "其他用户仍命中距离为0的画像");
+    }
+
+    @Test
+    void resubmissionWithoutOtherNeighboursFallsBackToGeneration() {
+        recommended(profile(1L, 40, SYMPTOMS, null), recipe("酸枣仁粥", "孕妇慎用"));
+        service.loadIndex();
+
+        assertNull(service.findReusableRecipe(profile(1L, 40, SYMPTOMS, null)));
+    }
+
+    @Test
+    void rejectsRecipeWhoseTabooMentionsAConditionOfTheProfile() {
+        recommended(profile(2L, 40, SYMPTOMS, null), recipe("山药薏米粥", "腹泻者忌服"));
+        service.loadIndex();
+
+        // 多出的症状带空白与全角字符，规范化后与禁忌说明中的"腹泻"一致
+        String symptoms = "[\"失眠\",\"乏力\",\"头晕\",\"心悸\",\" 腹泻　\"]";
+        assertNull(service.findReusableRecipe(profile(1L, 40, symptoms, null)));
+        assertEquals(1L, service.metricsSnapshot().get("contraindicated"));
+    }
+
+    @Test
+    void allowsRecipeWhoseTabooOnlyContainsTheConditionAsPartOfALongerTag() {
+        // 其他画像登记了"萎缩性胃炎"，禁忌说明按词表最长匹配识别为该病，而不是画像中的"胃炎"
+        recommended(profile(3L, 60, "[\"嗳气\"]", "[\"萎缩性胃炎\"]"), recipe("陈皮粥", "无"));
+        long neighbour = recommended(profile(2L, 40, SYMPTOMS, "[\"胃炎\"]"), recipe("山药薏米粥", "萎缩性胃炎患者忌服"));
+        service.loadIndex();
+
+        MedicinalDiet reused = service.findReusableRecipe(profile(1L, 40, SYMPTOMS, "[\"胃炎\"]"));
+        assertNotNull(reused, "原始子串匹配会误判为禁忌");
+        assertEquals(neighbour, reused.getId());
+    }
+
+    @Test
+    void vitalsAreMatchedAsWholeConditions() {
+        HealthProfile hypertensive = profile(1L, 40, null, null);
+        hypertensive.setBloodPressure(1);
+        assertTrue(service.hasContraindication("孕妇慎用；高血压、糖尿病患者忌食", hypertensive, List.of(), List.of()));
+        assertFalse(service.hasContraindication("低血压者慎用", hypertensive, List.of(), List.of()));
+
+        HealthProfile hypoglycemic = profile(1L, 40, null, null);
+        hypoglycemic.setBloodSugar(-1);
+        assertFalse(service.hasContraindication("高血压、糖尿病患者忌食", hypoglycemic, List.of(), List.of()));
+        assertTrue(service.hasContraindication("低血糖者空腹忌食", hypoglycemic, List.of(), List.of()));
+    }
+
+    private long recommended(HealthProfile profile, MedicinalDiet recipe) {
+        healthProfileMapper.insertHealthProfile(profile);
+        recipeMapper.insertRecipe(recipe);
+        profileRecipeMapper.insertLinks(List.of(ProfileRecipe.builder()
+                .profileId(profile.getProfileId())
+                .recipeId(recipe.getId())
+                .rankNo(0)
+                .served(1)
+                .build()));
+        return recipe.getId();
+    }
+
+    private static HealthProfile profile(Long userId, int age, String symptoms, String diseases) {
+        return HealthProfile.builder()
+                .userId(userId)
+                .age(age)
+                .gender(1)
+                .bloodPressure(0)
+                .bloodSugar(0)
+                .symptoms(symptoms)
+                .diseases(diseases)
+                .build();
+    }
+
+    private static MedicinalDiet recipe(String name, String taboo) {
+        MedicinalDiet recipe = new MedicinalDiet();
+        recipe.setName(name);
+        recipe.setTaboo(taboo);
+        recipe.setIsValid(1);
+        return recipe;
+    }
+}
@@ -0,0 +1,100 @@
+package com.util;
+
+import com.config.DeepSeekProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 复杂度路由：得分 = 其他状况×2 + 额外症状数 + 年龄段，取minScore不超过得分的最高档位
+ */
+class ComplexityRoutingPolicyTest {
+
+    private DeepSeekProperties properties;
+    private ComplexityRoutingPolicy policy;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DeepSeekProperties();
+        policy = new ComplexityRoutingPolicy();
+        ReflectionTestUtils.setField(policy, "properties", properties);
+    }
+
+    @Test
+    void scoreCountsConditionsSymptomsAndAgeBucket() {
+        assertEquals(0, policy.score(info("失眠", 30, "无")));
+        assertEquals(0, policy.score(info("无", 30, "无（格式异常）")), "占位值不计");
+        assertEquals(2, policy.score(info("失眠", 30, "高血压")));
+        assertEquals(4, policy.score(info("失眠", 30, "高血压、高血糖")));
+        assertEquals(2, policy.score(info("失眠、乏力、头晕", 30, "无")), "第一个症状不计分");
+        assertEquals(1, policy.score(info("失眠、、乏力、", 30, "无")), "空条目不计");
+        assertEquals(7, policy.score(info("失眠、乏力", 70, "高血压、糖尿病")));
+    }
+
+    @Test
+    void ageBucketsSwitchAtTheirBoundaries() {
+        assertEquals(0, policy.score(info("失眠", 0, "无")), "年龄未知不计分");
+        assertEquals(2, policy.score(info("失眠", 11, "无")));
+        assertEquals(0, policy.score(info("失眠", 12, "无")));
+        assertEquals(0, policy.score(info("失眠", 44, "无")));
+        assertEquals(1, policy.score(info("失眠", 45, "无")));
+        assertEquals(1, policy.score(info("失眠", 64, "无")));
+        assertEquals(2, policy.score(info("失眠", 65, "无")));
+    }
+
+    @Test
+    void highestTierReachedByTheScoreIsSelected() {
+        tiers(tier("lite", 0), tier("standard", 2), tier("expert", 5));
+
+        assertEquals("lite", route("失眠", 30, "无"));               // 0
+        assertEquals("lite", route("失眠", 45, "无"));               // 1
+        assertEquals("standard", route("失眠", 30, "高血压"));        // 2
+        assertEquals("standard", route("失眠、乏力、头晕", 30, "无"));  // 2
+        assertEquals("standard", route("失眠", 30, "高血压、高血糖"));  // 4
+        assertEquals("expert", route("失眠", 45, "高血压、高血糖"));    // 5
+        assertEquals("expert", route("失眠、乏力", 70, "高血压、糖尿病")); // 7
+    }
+
+    @Test
+    void tierOrderInConfigurationDoesNotMatter() {
+        tiers(tier("expert", 5), tier("lite", 0), tier("standard", 2));
+
+        assertEquals("lite", route("失眠", 45, "无"));
+        assertEquals("standard", route("失眠", 30, "高血压、高血糖"));
+        assertEquals("expert", route("失眠", 45, "高血压、高血糖"));
+    }
+
+    @Test
+    void noMatchingTierFallsBackToTheDefault() {
+        assertNull(policy.route(info("失眠", 30, "高血压"), 1), "未配置档位");
+
+        tiers(tier("standard", 2), tier("expert", 5));
+        assertNull(policy.route(info("失眠", 30, "无"), 1), "得分低于所有档位");
+        assertEquals("standard", route("失眠", 30, "高血压"));
+    }
+
+    private String route(String symptom, int age, String otherConditions) {
+        return policy.route(info(symptom, age, otherConditions), 1).getName();
+    }
+
+    private void tiers(DeepSeekProperties.ModelTier... tiers) {
+        properties.getRouting().setTiers(new ArrayList<>(List.of(tiers)));
+    }
+
+    private static DeepSeekProperties.ModelTier tier(String name, int minScore) {
+        DeepSeekProperties.ModelTier tier = new DeepSeekProperties.ModelTier();
+        tier.setName(name);
+        tier.setMinScore(minScore);
+        return tier;
+    }
+
+    private static DeepSeekClient.UserHealthInfo info(String symptom, int age, String otherConditions) {
+        return new DeepSeekClient.UserHealthInfo(symptom, "女", age, otherConditions);
+    }
+}
@@ -0,0 +1,126 @@
+package com.util;
+
+import com.config.DeepSeekProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * AI调用与请求截止时间：超时的调用按超时值计入对冲耗时样本；请求取消时中止进行中的交换；
+ * 请求已失效时不再发起调用
+ */
+class DeepSeekClientTest {
+
+    private StubDeepSeekServer stub;
+    private DeepSeekTransport transport;
+    private DeepSeekProperties properties;
+    private DeepSeekClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = StubDeepSeekServer.http(2_000);
+        properties = new DeepSeekProperties();
+        properties.getHttp().setVersion("HTTP_1_1");
+        properties.getHttp().setWarmupEnabled(false);
+        properties.getHedge().setMinSamples(1);
+        properties.getHedge().setMinDelayMs(0);
+        transport = new DeepSeekTransport();
+        ReflectionTestUtils.setField(transport, "properties", properties);
+        transport.init();
+
+        client = new DeepSeekClient();
+        ReflectionTestUtils.setField(client, "API_URL", stub.completionsUri().toString());
+        ReflectionTestUtils.setField(client, "transport", transport);
+        ReflectionTestUtils.setField(client, "properties", properties);
+        client.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.shutdown();
+        stub.close();
+    }
+
+    @Test
+    void timedOutCallIsRecordedAtTheTimeoutValue() {
+        RequestDeadline.bind(new RequestDeadline(300));
+        try {
+            assertThrows(RequestDeadline.DeadlineExceededException.class, () -> client.generateDietRecommendation(
+                    new DeepSeekClient.UserHealthInfo("失眠", "男", 45, "无")));
+        } finally {
+            RequestDeadline.unbind();
+        }
+
+        assertEquals(1L, client.hedgeMetricsSnapshot().get("censoredSamples"));
+        long delay = ((Number) client.hedgeMetricsSnapshot().get("hedgeDelayMillis")).longValue();
+        assertTrue(delay >= 250 && delay <= 300, "样本为请求超时值（截止时间剩余约300ms），实际" + delay);
+    }
+
+    @Test
+    void cancellingTheRequestAbortsTheExchange() throws Exception {
+        assertCancelAbortsExchange();
+    }
+
+    @Test
+    void cancellingTheRequestAbortsHedgedExchanges() throws Exception {
+        properties.getHedge().setEnabled(true);
+        assertCancelAbortsExchange();
+    }
+
+    @Test
+    void expiredRequestSkipsTheCall() {
+        long skippedBefore = counter("skippedAiCalls");
+        RequestDeadline.bind(new RequestDeadline(-1));
+        try {
+            assertThrows(RequestDeadline.DeadlineExceededException.class, () -> client.generateDietRecommendation(
+                    new DeepSeekClient.UserHealthInfo("失眠", "男", 45, "无")));
+        } finally {
+            RequestDeadline.unbind();
+        }
+        assertEquals(skippedBefore + 1, counter("skippedAiCalls"));
+        assertEquals(0, stub.completions(), "未发出请求");
+    }
+
+    /**
+     * 桩服务2秒后才响应；200ms后取消请求，调用应立即结束而不是等到响应返回
+     */
+    private void assertCancelAbortsExchange() throws Exception {
+        long cancelledBefore = counter("cancelledAiExchanges");
+        RequestDeadline deadline = new RequestDeadline(30_000);
+        Thread canceller = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                return;
+            }
+            deadline.cancel();
+        });
+        canceller.start();
+
+        long start = System.nanoTime();
+        RequestDeadline.bind(deadline);
+        try {
+            assertThrows(RequestDeadline.DeadlineExceededException.class, () -> client.generateDietRecommendation(
+                    new DeepSeekClient.UserHealthInfo("失眠", "男", 45, "无")));
+        } finally {
+            RequestDeadline.unbind();
+            canceller.join();
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMs < 1_500, "取消后不再等待响应，实际" + elapsedMs + "ms");
+        assertEquals(cancelledBefore + 1, counter("cancelledAiExchanges"));
+        assertEquals(0L, client.hedgeMetricsSnapshot().get("censoredSamples"), "取消的调用不计入耗时样本");
+    }
+
+    private static long counter(String name) {
+        return (Long) RequestDeadline.metricsSnapshot().get(name);
+    }
+}
@@ -0,0 +1,95 @@
+package com.util;
+
+import com.config.DeepSeekProperties;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 连接预热效果对比（本地TLS桩服务）：未预热时首个请求承担TCP+TLS握手，预热后首个请求复用已建立的连接
+ */
+class DeepSeekTransportTlsTest {
+
+    private static StubDeepSeekServer stub;
+
+    @BeforeAll
+    static void startStub() throws Exception {
+        stub = StubDeepSeekServer.https(0);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @Test
+    void warmUpMovesHandshakeOutOfFirstRequest() throws Exception {
+        URI uri = stub.completionsUri();
+
+        // 先用独立的客户端跑几轮，排除类加载与JIT对首个请求耗时的影响
+        DeepSeekTransport jvmWarmup = newTransport();
+        for (int i = 0; i < 20; i++) {
+            timedRequest(jvmWarmup, uri);
+        }
+        jvmWarmup.shutdown();
+
+        DeepSeekTransport cold = newTransport();
+        long coldFirstNanos = timedRequest(cold, uri);
+        long coldSecondNanos = timedRequest(cold, uri);
+        assertEquals(1L, cold.metricsSnapshot().get("tlsConnectionsOpened"), "未预热：首个请求新建连接，第二个复用");
+        assertEquals(0.5, (Double) cold.metricsSnapshot().get("connectionReuseRatio"), 1e-9);
+
+        DeepSeekTransport warm = newTransport();
+        warm.registerWarmupTarget(uri);
+        warm.warmUp();
+        assertEquals(1L, warm.metricsSnapshot().get("warmupConnectionsOpened"), "预热建立连接");
+        long warmFirstNanos = timedRequest(warm, uri);
+
+        Map<String, Object> metrics = warm.metricsSnapshot();
+        assertEquals(1L, metrics.get("tlsConnectionsOpened"), "预热后的首个请求不再握手");
+        assertEquals(1L, metrics.get("exchanges"), "预热请求不计入业务交换");
+        assertEquals(1.0, (Double) metrics.get("connectionReuseRatio"), 1e-9, "预热请求不拉低复用率");
+        assertTrue((Double) metrics.get("avgHandshakeMillis") > 0, "记录预热连接的握手耗时");
+        assertTrue((Double) cold.metricsSnapshot().get("avgHandshakeMillis") > 0, "业务请求新建连接同样记录握手耗时");
+
+        System.out.printf("TLS桩服务：未预热首个请求 %.2fms，复用连接 %.2fms；预热后首个请求 %.2fms，握手约 %.2fms%n",
+                millis(coldFirstNanos), millis(coldSecondNanos), millis(warmFirstNanos), metrics.get("avgHandshakeMillis"));
+        cold.shutdown();
+        warm.shutdown();
+    }
+
+    private static DeepSeekTransport newTransport() throws Exception {
+        DeepSeekProperties properties = new DeepSeekProperties();
+        properties.getHttp().setExecutorThreads(4);
+        DeepSeekTransport transport = new DeepSeekTransport();
+        ReflectionTestUtils.setField(transport, "properties", properties);
+        transport.init(StubDeepSeekServer.clientContext());
+        return transport;
+    }
+
+    private static long timedRequest(DeepSeekTransport transport, URI uri) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{}"))
+                .build();
+        long start = System.nanoTime();
+        HttpResponse<String> response = transport.send(request);
+        long elapsed = System.nanoTime() - start;
+        assertEquals(200, response.statusCode());
+        return elapsed;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
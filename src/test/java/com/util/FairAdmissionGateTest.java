@@ -0,0 +1,160 @@
+package com.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 准入闸门：按用户轮转放行、预计等待超过SLA时立即拒绝、单用户排队上限，
+ * 以及排队中被中断的请求不能带走并发名额
+ */
+class FairAdmissionGateTest {
+
+    private static final long HEAVY_USER = 1L;
+    private static final long LIGHT_USER = 2L;
+
+    @Test
+    void queuedUsersAreAdmittedRoundRobin() throws Exception {
+        FairAdmissionGate gate = new FairAdmissionGate(1, 10, 5, 10_000, 1, 0.2);
+        FairAdmissionGate.Decision holder = gate.acquire(9L);
+        BlockingQueue<FairAdmissionGate.Ticket> granted = new LinkedBlockingQueue<>();
+
+        // 重度用户先排3个请求，轻度用户随后排1个
+        enqueue(gate, HEAVY_USER, granted, 1);
+        enqueue(gate, HEAVY_USER, granted, 2);
+        enqueue(gate, HEAVY_USER, granted, 3);
+        enqueue(gate, LIGHT_USER, granted, 4);
+        assertEquals(2, gate.metricsSnapshot().get("queuedUsers"));
+
+        // 同时只放行一个：每次归还后记录被放行的用户
+        List<Long> order = new ArrayList<>();
+        FairAdmissionGate.Ticket running = holder.getTicket();
+        for (int i = 0; i < 4; i++) {
+            gate.release(running);
+            running = granted.poll(5, TimeUnit.SECONDS);
+            assertNotNull(running, "归还后应放行下一个排队请求");
+            order.add(running.getUserId());
+        }
+        gate.release(running);
+
+        assertEquals(List.of(HEAVY_USER, LIGHT_USER, HEAVY_USER, HEAVY_USER), order,
+                "轻度用户不必等重度用户的全部请求执行完");
+        assertEquals(0, gate.metricsSnapshot().get("running"));
+        assertEquals(0, gate.metricsSnapshot().get("queued"));
+    }
+
+    @Test
+    void requestIsShedImmediatelyWhenPredictedWaitExceedsSla() throws Exception {
+        // 平均处理600ms、并发1：排第一位预计等600ms（SLA内），排第二位预计等1200ms（超出SLA）
+        FairAdmissionGate gate = new FairAdmissionGate(1, 10, 10, 1_000, 600, 0.2);
+        FairAdmissionGate.Decision holder = gate.acquire(9L);
+        BlockingQueue<FairAdmissionGate.Ticket> granted = new LinkedBlockingQueue<>();
+        enqueue(gate, LIGHT_USER, granted, 1);
+
+        long start = System.nanoTime();
+        FairAdmissionGate.Decision shed = gate.acquire(3L);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertFalse(shed.isAdmitted());
+        assertEquals(1_200, shed.getPredictedWaitMs());
+        assertTrue(elapsedMs < 1_000, "拒绝不经过排队等待，实际" + elapsedMs + "ms");
+        assertEquals(1L, gate.metricsSnapshot().get("shed"));
+        assertEquals(1, gate.metricsSnapshot().get("queued"), "被拒绝的请求不进入队列");
+
+        gate.release(holder.getTicket());
+        FairAdmissionGate.Ticket next = granted.poll(5, TimeUnit.SECONDS);
+        assertNotNull(next);
+        gate.release(next);
+    }
+
+    @Test
+    void userCannotQueueBeyondPerUserCap() throws Exception {
+        FairAdmissionGate gate = new FairAdmissionGate(1, 10, 2, 10_000, 1, 0.2);
+        FairAdmissionGate.Decision holder = gate.acquire(9L);
+        BlockingQueue<FairAdmissionGate.Ticket> granted = new LinkedBlockingQueue<>();
+        enqueue(gate, HEAVY_USER, granted, 1);
+        enqueue(gate, HEAVY_USER, granted, 2);
+
+        assertFalse(gate.acquire(HEAVY_USER).isAdmitted(), "超出单用户排队上限");
+        enqueue(gate, LIGHT_USER, granted, 3);
+        assertEquals(1L, gate.metricsSnapshot().get("shed"), "其他用户仍可排队");
+
+        FairAdmissionGate.Ticket running = holder.getTicket();
+        for (int i = 0; i < 3; i++) {
+            gate.release(running);
+            running = granted.poll(5, TimeUnit.SECONDS);
+            assertNotNull(running);
+        }
+        gate.release(running);
+        assertEquals(0, gate.metricsSnapshot().get("running"));
+    }
+
+    @Test
+    void interruptedWaiterLeavesQueueAndKeepsSlotFree() throws Exception {
+        FairAdmissionGate gate = new FairAdmissionGate(1, 4, 2, 10_000, 10, 0.2);
+        FairAdmissionGate.Decision first = gate.acquire(1L);
+        assertTrue(first.isAdmitted());
+
+        CompletableFuture<Throwable> outcome = new CompletableFuture<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                gate.acquire(2L);
+                outcome.complete(null);
+            } catch (Throwable e) {
+                outcome.complete(e);
+            }
+        });
+        waiter.start();
+        awaitQueued(gate, 1);
+        assertEquals(1, gate.metricsSnapshot().get("queued"), "第二个请求排队");
+
+        waiter.interrupt();
+        assertTrue(outcome.get(5, TimeUnit.SECONDS) instanceof InterruptedException, "中断异常抛回调用方");
+        assertEquals(0, gate.metricsSnapshot().get("queued"), "被中断的请求已出队");
+
+        gate.release(first.getTicket());
+        assertEquals(0, gate.metricsSnapshot().get("running"), "许可未被发给已离开的调用方");
+        FairAdmissionGate.Decision next = gate.acquire(3L);
+        assertTrue(next.isAdmitted(), "并发名额没有泄漏");
+        gate.release(next.getTicket());
+    }
+
+    /**
+     * 在后台线程中申请许可，等到该请求进入队列（排队总数达到expectedQueued）后返回，保证各请求的排队顺序确定；
+     * 放行后许可放入granted
+     */
+    private static void enqueue(FairAdmissionGate gate, long userId, BlockingQueue<FairAdmissionGate.Ticket> granted,
+                                int expectedQueued) throws InterruptedException {
+        Thread waiter = new Thread(() -> {
+            try {
+                FairAdmissionGate.Decision decision = gate.acquire(userId);
+                if (decision.isAdmitted()) {
+                    granted.add(decision.getTicket());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.setDaemon(true);
+        waiter.start();
+        awaitQueued(gate, expectedQueued);
+    }
+
+    private static void awaitQueued(FairAdmissionGate gate, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((Integer) gate.metricsSnapshot().get("queued") < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, gate.metricsSnapshot().get("queued"), "请求已进入队列");
+    }
+}
@@ -0,0 +1,81 @@
+package com.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 对冲策略：样本不足时不对冲、按分位数取对冲延迟（不低于下限）、删失样本计入分位数、令牌桶限制对冲预算
+ */
+class HedgePolicyTest {
+
+    @Test
+    void noHedgeUntilMinSamplesAreCollected() {
+        HedgePolicy policy = new HedgePolicy(0.9, 10, 5, 0, 1.0, 5);
+        for (int i = 0; i < 4; i++) {
+            policy.recordLatency(100, false);
+        }
+        assertEquals(-1, policy.onCall(), "4个样本不足以估计分位数");
+        policy.recordLatency(100, false);
+        assertEquals(100, policy.onCall());
+    }
+
+    @Test
+    void delayIsThePercentileOfTheRecentWindowButNotBelowTheFloor() {
+        HedgePolicy policy = new HedgePolicy(0.9, 10, 1, 0, 1.0, 5);
+        for (int i = 10; i >= 1; i--) {
+            policy.recordLatency(i * 100L, false);
+        }
+        assertEquals(900, policy.onCall(), "10个样本的p90取第9小的值");
+
+        HedgePolicy floored = new HedgePolicy(0.9, 10, 1, 1_000, 1.0, 5);
+        floored.recordLatency(100, false);
+        assertEquals(1_000, floored.onCall(), "不低于最小对冲延迟");
+
+        // 窗口满后旧样本被覆盖
+        for (int i = 0; i < 10; i++) {
+            policy.recordLatency(50, false);
+        }
+        assertEquals(50, policy.onCall());
+    }
+
+    @Test
+    void censoredFailuresRaiseThePercentile() {
+        HedgePolicy policy = new HedgePolicy(0.95, 20, 1, 0, 1.0, 5);
+        for (int i = 0; i < 18; i++) {
+            policy.recordLatency(200, false);
+        }
+        assertEquals(200, policy.onCall());
+
+        // 两次30秒超时：只记成功耗时时对冲延迟仍为200ms
+        policy.recordCensored(30_000);
+        policy.recordCensored(30_000);
+        assertEquals(30_000, policy.onCall());
+        assertEquals(2L, policy.metricsSnapshot().get("censoredSamples"));
+    }
+
+    @Test
+    void hedgesAreLimitedByTheTokenBucket() {
+        HedgePolicy policy = new HedgePolicy(0.9, 10, 1, 0, 0.25, 2);
+        for (int i = 0; i < 3; i++) {
+            policy.onCall();
+        }
+        assertFalse(policy.tryAcquireHedge(), "3次主请求只积累0.75个令牌");
+        policy.onCall();
+        assertTrue(policy.tryAcquireHedge(), "第4次主请求后满1个令牌");
+        assertFalse(policy.tryAcquireHedge());
+
+        for (int i = 0; i < 100; i++) {
+            policy.onCall();
+        }
+        assertTrue(policy.tryAcquireHedge());
+        assertTrue(policy.tryAcquireHedge());
+        assertFalse(policy.tryAcquireHedge(), "令牌数不超过突发上限");
+
+        assertEquals(3L, policy.metricsSnapshot().get("hedges"));
+        assertEquals(3L, policy.metricsSnapshot().get("budgetDenied"));
+        assertEquals(104L, policy.metricsSnapshot().get("calls"));
+    }
+}
@@ -0,0 +1,90 @@
+package com.util;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 相似画像索引基准：数十万画像下的构建与查询耗时（mvn test -Pbenchmark）
+ */
+@Tag("benchmark")
+class ProfileSimilarityIndexBenchmark {
+
+    private static final double MAX_DISTANCE = 0.2;
+
+    private final ProfileSimilarityIndex index = new ProfileSimilarityIndex(0.7, 0.3, 20);
+
+    @Test
+    void benchmarkQueriesOverHundredsOfThousandsOfProfiles() {
+        int profiles = 300_000;
+        Random random = new Random(42);
+        String[] symptomTags = tags("症状", 400);
+        String[] diseaseTags = tags("疾病", 100);
+
+        long buildStart = System.nanoTime();
+        for (int i = 0; i < profiles; i++) {
+            index.add(1 + random.nextInt(90), random.nextInt(2), random.nextInt(3) - 1, random.nextInt(3) - 1,
+                    pick(random, symptomTags, 1 + random.nextInt(5)), pick(random, diseaseTags, random.nextInt(3)), i);
+        }
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+
+        int warmup = 2_000;
+        int queries = 5_000;
+        long[] latencies = new long[queries];
+        int hits = 0;
+        for (int q = -warmup; q < queries; q++) {
+            int age = 1 + random.nextInt(90);
+            int gender = random.nextInt(2);
+            int pressure = random.nextInt(3) - 1;
+            int sugar = random.nextInt(3) - 1;
+            List<String> symptoms = pick(random, symptomTags, 1 + random.nextInt(5));
+            List<String> diseases = pick(random, diseaseTags, random.nextInt(3));
+            long start = System.nanoTime();
+            ProfileSimilarityIndex.Match match = index.nearest(age, gender, pressure, sugar, symptoms, diseases, MAX_DISTANCE);
+            long elapsed = System.nanoTime() - start;
+            if (q >= 0) {
+                latencies[q] = elapsed;
+                hits += match == null ? 0 : 1;
+            }
+        }
+        Arrays.sort(latencies);
+        double p50 = latencies[queries / 2] / 1000.0;
+        double p99 = latencies[queries * 99 / 100] / 1000.0;
+        long indexBytes = (long) profiles * (index.bitsetWords() * Long.BYTES + Integer.BYTES + 3 + Long.BYTES + Short.BYTES);
+
+        System.out.printf("相似画像索引：%d个画像，%d种标签，构建%dms，约%.1fMB；查询p50 %.1fµs，p99 %.1fµs，命中%d/%d%n",
+                profiles, index.dictionarySize(), buildMillis, indexBytes / 1024.0 / 1024.0, p50, p99, hits, queries);
+        assertEquals(profiles, index.size());
+        assertTrue(p50 < 1000, "查询中位耗时应低于1ms，实际" + p50 + "µs");
+    }
+
+    private static String[] tags(String prefix, int count) {
+        String[] tags = new String[count];
+        for (int i = 0; i < count; i++) {
+            tags[i] = prefix + i;
+        }
+        return tags;
+    }
+
+    /**
+     * 按近似幂律分布抽取不重复的标签（常见症状出现得更频繁）
+     */
+    private static List<String> pick(Random random, String[] vocabulary, int count) {
+        List<String> picked = new ArrayList<>(count);
+        while (picked.size() < count) {
+            double u = random.nextDouble();
+            String tag = vocabulary[(int) (vocabulary.length * u * u * u)];
+            if (!picked.contains(tag)) {
+                picked.add(tag);
+            }
+        }
+        return picked;
+    }
+}
@@ -0,0 +1,60 @@
+package com.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 相似画像索引：标签不共用位的正确性
+ */
+class ProfileSimilarityIndexTest {
+
+    private static final double MAX_DISTANCE = 0.2;
+
+    private final ProfileSimilarityIndex index = new ProfileSimilarityIndex(0.7, 0.3, 20);
+
+    @Test
+    void exactProfileIsFound() {
+        index.add(30, 1, 0, 0, List.of("失眠", "乏力"), List.of(), 7L);
+
+        ProfileSimilarityIndex.Match match = index.nearest(30, 1, 0, 0, List.of("失眠", "乏力"), List.of(), MAX_DISTANCE);
+        assertNotNull(match);
+        assertEquals(7L, match.getRecipeId());
+        assertEquals(0.0, match.getDistance(), 1e-9);
+    }
+
+    @Test
+    void tagsBeyondInitialWidthDoNotCollide() {
+        index.add(30, 1, 0, 0, List.of("tag-0"), List.of(), 1L);
+        // 另一性别的画像登记512个新标签，位图须加宽而不是让tag-512与tag-0共用一位
+        List<String> filler = new ArrayList<>();
+        for (int i = 1; i <= 512; i++) {
+            filler.add("tag-" + i);
+        }
+        index.add(30, 0, 0, 0, filler, List.of(), 2L);
+
+        assertTrue(index.bitsetWords() > 8);
+        assertNull(index.nearest(30, 1, 0, 0, List.of("tag-512"), List.of(), MAX_DISTANCE));
+        assertNotNull(index.nearest(30, 1, 0, 0, List.of("tag-0"), List.of(), MAX_DISTANCE));
+    }
+
+    @Test
+    void tagsBeyondMaximumWidthNeverMatch() {
+        List<String> filler = new ArrayList<>();
+        for (int i = 0; i < 64 * 64; i++) {
+            filler.add("tag-" + i);
+        }
+        index.add(30, 0, 0, 0, filler, List.of(), 1L);
+        index.add(30, 1, 0, 0, List.of("rare"), List.of(), 2L);
+
+        // 超出上限的标签视为无法比对：同一个标签也不算作交集
+        assertNull(index.nearest(30, 1, 0, 0, List.of("rare"), List.of(), MAX_DISTANCE));
+        assertNotNull(index.nearest(30, 0, 0, 0, filler, List.of(), MAX_DISTANCE));
+    }
+}
@@ -0,0 +1,51 @@
+package com.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * 药膳内容指纹：用量、单位、括号备注、分隔符与顺序不影响指纹，药材名的差异必须保留
+ */
+class RecipeContentHasherTest {
+
+    private static final String NAME = "红枣粳米粥";
+
+    @Test
+    void quantitiesAndUnitsAreIgnored() {
+        assertSame("红枣5颗、粳米100g", "红枣10颗、粳米50g");
+        assertSame("山药200g、薏米50克", "山药0.5kg、薏米1两");
+        assertSame("红枣三枚、粳米适量", "红枣 6 枚、粳米少许");
+        assertSame("枸杞10-15g", "枸杞");
+    }
+
+    @Test
+    void remarksSeparatorsAndOrderAreIgnored() {
+        assertSame("红枣5颗（去核）、粳米100g", "红枣5颗(去核),粳米100g");
+        assertSame("红枣【干品】；粳米", "粳米/红枣");
+        assertSame("红枣5颗，粳米100g", "粳米100g\n红枣5颗");
+        assertSame("红枣、粳米、红枣", "粳米、红枣");
+        assertSame("ＲＥＤ枣５颗、粳米", "red枣5颗、粳米");
+        assertEquals(RecipeContentHasher.hash(NAME, "红枣、粳米"), RecipeContentHasher.hash("红枣粳米粥（家常做法）", "红枣、粳米"));
+    }
+
+    @Test
+    void differentHerbsAreNotCollapsed() {
+        assertDifferent("生地黄15g", "生地15g");
+        assertDifferent("三七10g", "七10g");
+        assertDifferent("红枣5颗、粳米100g", "红枣5颗、小米100g");
+        assertDifferent("红枣5颗、粳米100g", "红枣5颗");
+        assertNotEquals(RecipeContentHasher.hash(NAME, "红枣、粳米"), RecipeContentHasher.hash("红枣小米粥", "红枣、粳米"));
+    }
+
+    private static void assertSame(String ingredients, String other) {
+        assertEquals(RecipeContentHasher.hash(NAME, ingredients), RecipeContentHasher.hash(NAME, other),
+                ingredients + " 与 " + other + " 应为同一药膳");
+    }
+
+    private static void assertDifferent(String ingredients, String other) {
+        assertNotEquals(RecipeContentHasher.hash(NAME, ingredients), RecipeContentHasher.hash(NAME, other),
+                ingredients + " 与 " + other + " 不应合并");
+    }
+}
@@ -0,0 +1,126 @@
+package com.util;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 药膳全文检索基准：倒排索引与逐行子串匹配（LIKE '%…%'）的内存与延迟对比（mvn test -Pbenchmark）
+ */
+@Tag("benchmark")
+class RecipeSearchIndexBenchmark {
+
+    private static final String[] NAMES = {"山药薏米粥", "百合莲子汤", "枸杞菊花茶", "黄芪炖鸡", "红枣桂圆羹", "冬瓜排骨汤",
+            "芹菜拌木耳", "酸枣仁粥", "茯苓糕", "绿豆海带汤", "当归生姜羊肉汤", "银耳雪梨羹"};
+    private static final String[] EFFECTS = {"健脾益胃", "养心安神", "清肝明目", "补气养血", "降压降脂", "清热利湿",
+            "改善失眠", "润肺止咳", "调节血糖", "温中散寒", "滋阴润燥", "利水消肿"};
+    private static final String[] INGREDIENTS = {"山药100g", "薏米50g", "百合30g", "莲子20g", "枸杞10g", "菊花5g",
+            "黄芪15g", "鸡肉200g", "红枣6枚", "桂圆10g", "冬瓜300g", "排骨250g", "芹菜150g", "木耳20g", "酸枣仁15g",
+            "茯苓30g", "绿豆50g", "海带30g", "当归10g", "生姜15g", "羊肉250g", "银耳15g", "雪梨1个", "粳米100g"};
+    private static final String[] STEPS = {"洗净切块", "冷水下锅", "大火煮沸后转小火", "慢炖一小时", "加入冰糖调味",
+            "浸泡两小时", "焯水去腥", "隔水蒸二十分钟", "出锅前撒葱花", "少放盐"};
+
+    @Test
+    void benchmarkAgainstSubstringScan() {
+        int docs = 100_000;
+        Random random = new Random(7);
+        String[][] corpus = new String[docs][];
+        for (int i = 0; i < docs; i++) {
+            corpus[i] = new String[]{
+                    NAMES[random.nextInt(NAMES.length)],
+                    EFFECTS[random.nextInt(EFFECTS.length)] + "，" + EFFECTS[random.nextInt(EFFECTS.length)],
+                    join(random, INGREDIENTS, 3 + random.nextInt(3), "、"),
+                    join(random, STEPS, 3 + random.nextInt(3), "，")};
+        }
+
+        long heapBefore = usedHeap();
+        RecipeSearchIndex index = new RecipeSearchIndex();
+        long buildStart = System.nanoTime();
+        for (int i = 0; i < docs; i++) {
+            index.add(i, corpus[i][0], corpus[i][1], corpus[i][2], corpus[i][3]);
+        }
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+        long heapBytes = usedHeap() - heapBefore;
+        long textBytes = 0;
+        for (String[] doc : corpus) {
+            for (String field : doc) {
+                textBytes += field.length() * 2L;
+            }
+        }
+
+        String[] queries = {"山药", "降压", "失眠", "健脾", "安神", "枸杞", "羊肉", "清热利湿", "雪梨银耳", "慢炖", "枣"};
+        long[] indexLatencies = new long[2_000];
+        for (int q = -500; q < indexLatencies.length; q++) {
+            String query = queries[Math.floorMod(q, queries.length)];
+            long start = System.nanoTime();
+            long[] hits = index.search(query, 10);
+            long elapsed = System.nanoTime() - start;
+            assertEquals(10, hits.length, query);
+            if (q >= 0) {
+                indexLatencies[q] = elapsed;
+            }
+        }
+
+        // 对照：逐行子串匹配（相当于对四个字段做LIKE '%…%'，且不含磁盘I/O）
+        long[] scanLatencies = new long[50];
+        int sink = 0;
+        for (int q = -10; q < scanLatencies.length; q++) {
+            String query = queries[Math.floorMod(q, queries.length)];
+            long start = System.nanoTime();
+            for (String[] doc : corpus) {
+                if (doc[0].contains(query) || doc[1].contains(query) || doc[2].contains(query) || doc[3].contains(query)) {
+                    sink++;
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            if (q >= 0) {
+                scanLatencies[q] = elapsed;
+            }
+        }
+
+        Arrays.sort(indexLatencies);
+        Arrays.sort(scanLatencies);
+        double indexP50 = indexLatencies[indexLatencies.length / 2] / 1000.0;
+        double indexP99 = indexLatencies[indexLatencies.length * 99 / 100] / 1000.0;
+        double scanP50 = scanLatencies[scanLatencies.length / 2] / 1000.0;
+        Map<String, Object> stats = index.stats();
+        System.out.printf("药膳检索：%d篇，构建%dms，%s个词项，倒排%.1fMB，估算%.1fMB，堆增量约%.1fMB（原文%.1fMB）；"
+                        + "查询p50 %.1fµs，p99 %.1fµs；逐行匹配p50 %.1fµs（匹配%d行）%n",
+                docs, buildMillis, stats.get("terms"), mb((Long) stats.get("postingBytes")), mb((Long) stats.get("estimatedBytes")),
+                mb(heapBytes), mb(textBytes), indexP50, indexP99, scanP50, sink);
+
+        assertEquals(docs, index.docCount());
+        assertTrue((Long) stats.get("postingBytes") < textBytes, "变长编码的倒排表应小于原文");
+        // 语料只有百余个词项，每个词项命中约六分之一的文档，远比真实数据密集，故只要求数倍的差距
+        assertTrue(indexP50 * 3 < scanP50, "索引查询应明显快于逐行匹配");
+    }
+
+    private static String join(Random random, String[] pool, int count, String separator) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(separator);
+            }
+            text.append(pool[random.nextInt(pool.length)]);
+        }
+        return text.toString();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static double mb(long bytes) {
+        return bytes / 1024.0 / 1024.0;
+    }
+}
@@ -0,0 +1,71 @@
+package com.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 药膳全文检索：分词、BM25排序、单字查询、按药膳ID去重与删除
+ */
+class RecipeSearchIndexTest {
+
+    @Test
+    void tokenizerSplitsHanRunsIntoBigrams() {
+        assertEquals(List.of("山药", "药薏", "薏米", "米粥", "100g"), CjkBigramTokenizer.tokenize("山药薏米粥，100G"));
+        assertEquals(List.of("粥"), CjkBigramTokenizer.tokenize("粥"));
+    }
+
+    @Test
+    void nameMatchesRankAboveMethodMatches() {
+        RecipeSearchIndex index = new RecipeSearchIndex();
+        index.add(1, "百合莲子汤", "养心安神", "百合30g、莲子20g", "可另加山药同煮");
+        index.add(2, "山药薏米粥", "健脾益胃", "山药100g、薏米50g", "洗净切块");
+        index.add(3, "芹菜拌木耳", "降压降脂", "芹菜150g、木耳20g", "焯水");
+
+        assertArrayEquals(new long[]{2, 1}, index.search("山药", 10));
+        assertArrayEquals(new long[]{3}, index.search("降压", 10));
+        assertEquals(0, index.search("失眠", 10).length);
+    }
+
+    @Test
+    void singleCharacterQueriesMatchInsideLongerWords() {
+        RecipeSearchIndex index = new RecipeSearchIndex();
+        index.add(1, "红枣桂圆羹", "补气养血", "红枣6枚、桂圆10g", "小火慢炖");
+        index.add(2, "山药薏米粥", "健脾益胃", "山药100g、薏米50g", "洗净切块");
+        index.add(3, "酸枣仁粥", "养心安神", "酸枣仁15g、粳米100g", "煮粥");
+
+        assertArrayEquals(new long[]{2}, index.search("药", 10));
+        assertArrayEquals(new long[]{1, 3}, sorted(index.search("枣", 10)));
+        assertEquals(2, index.search("粥", 10).length);
+    }
+
+    @Test
+    void sameRecipeIsIndexedOnceAndStaysRemoved() {
+        RecipeSearchIndex index = new RecipeSearchIndex();
+        assertTrue(index.add(1, "山药薏米粥", "健脾益胃", "山药100g、薏米50g", "洗净切块"));
+        // 启动扫描与保存后的增量加入读到同一行
+        assertFalse(index.add(1, "山药薏米粥", "健脾益胃", "山药100g、薏米50g", "洗净切块"));
+        index.add(2, "山药排骨汤", "健脾益胃", "山药200g、排骨250g", "焯水");
+        assertEquals(2, index.docCount());
+        assertArrayEquals(new long[]{1, 2}, sorted(index.search("山药", 10)));
+
+        assertTrue(index.remove(1));
+        assertFalse(index.remove(1));
+        assertArrayEquals(new long[]{2}, index.search("山药", 10));
+        // 删除后晚到的启动扫描结果不会把它加回来
+        assertFalse(index.add(1, "山药薏米粥", "健脾益胃", "山药100g、薏米50g", "洗净切块"));
+        assertArrayEquals(new long[]{2}, index.search("山药", 10));
+        assertEquals(1, index.docCount());
+    }
+
+    private static long[] sorted(long[] ids) {
+        Arrays.sort(ids);
+        return ids;
+    }
+}
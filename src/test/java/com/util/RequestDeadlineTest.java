@@ -0,0 +1,59 @@
+package com.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 请求截止时间：JDBC语句超时的折算，以及取消动作的登记、注销与只执行一次
+ */
+class RequestDeadlineTest {
+
+    @Test
+    void statementTimeoutRoundsUpToWholeSecondsAndIsAtLeastOne() {
+        assertEquals(3, new RequestDeadline(2_500).remainingSecondsForStatement());
+        assertEquals(1, new RequestDeadline(200).remainingSecondsForStatement());
+        // 已过期时仍返回1秒（0表示不限时）
+        assertEquals(1, new RequestDeadline(-5_000).remainingSecondsForStatement());
+    }
+
+    @Test
+    void expiredDeadlineFailsTheActiveCheck() {
+        RequestDeadline expired = new RequestDeadline(-1);
+        assertTrue(expired.isExpired());
+        assertFalse(expired.isCancelled());
+        assertThrows(RequestDeadline.DeadlineExceededException.class, () -> expired.checkActive("调用AI前"));
+
+        RequestDeadline active = new RequestDeadline(10_000);
+        active.checkActive("调用AI前");
+        active.cancel();
+        assertTrue(active.isExpired(), "取消后视为失效");
+        assertThrows(RequestDeadline.DeadlineExceededException.class, () -> active.checkActive("保存推荐前"));
+    }
+
+    @Test
+    void cancelRunsRegisteredHandlersOnce() {
+        RequestDeadline deadline = new RequestDeadline(10_000);
+        AtomicInteger aborted = new AtomicInteger();
+        AtomicInteger unregistered = new AtomicInteger();
+        deadline.onCancel(aborted::incrementAndGet);
+        Runnable registration = deadline.onCancel(unregistered::incrementAndGet);
+        // 交换已结束，注销其取消动作
+        registration.run();
+
+        deadline.cancel();
+        deadline.cancel();
+        assertEquals(1, aborted.get(), "重复取消只执行一次");
+        assertEquals(0, unregistered.get(), "已注销的动作不执行");
+
+        // 取消后才登记的动作立即执行
+        AtomicInteger late = new AtomicInteger();
+        deadline.onCancel(late::incrementAndGet);
+        assertEquals(1, late.get());
+    }
+}
@@ -0,0 +1,142 @@
+package com.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地DeepSeek桩服务：POST返回固定的chat/completions响应（含一款完整药膳与usage），
+ * 可设置响应延迟以模拟模型生成耗时；HEAD（连接预热）立即返回
+ */
+public class StubDeepSeekServer implements AutoCloseable {
+
+    private static final char[] KEYSTORE_PASSWORD = "changeit".toCharArray();
+
+    static {
+        // 关闭Nagle算法，避免响应头与响应体分两次写出时的延迟确认（约40ms）掩盖握手耗时
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        // 默认最多保留200条空闲连接，多出的会被服务端关闭，而客户端仍会复用它们；并发测试需放宽
+        System.setProperty("sun.net.httpserver.maxIdleConnections", "4096");
+    }
+
+    static final String DIET_JSON = "{\"name\":\"山药薏米粥\",\"ingredients\":[\"山药100g\",\"薏米50g\"],"
+            + "\"steps\":[\"薏米提前浸泡\",\"与山药同煮至软烂\"],\"reason\":\"健脾祛湿\",\"taboo\":\"孕妇慎用\","
+            + "\"suitableTime\":\"早餐\",\"tags\":[\"健脾\",\"祛湿\"]}";
+
+    private static final String RESPONSE_BODY = "{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":"
+            + quote(DIET_JSON) + "}}],\"usage\":{\"prompt_tokens\":320,\"completion_tokens\":180}}";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger completions = new AtomicInteger();
+    private final String scheme;
+    private volatile long delayMs;
+
+    private StubDeepSeekServer(HttpServer server, String scheme, long delayMs) {
+        this.server = server;
+        this.scheme = scheme;
+        this.delayMs = delayMs;
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public static StubDeepSeekServer http(long delayMs) throws IOException {
+        return new StubDeepSeekServer(HttpServer.create(loopback(), 1024), "http", delayMs);
+    }
+
+    static StubDeepSeekServer https(long delayMs) throws Exception {
+        HttpsServer server = HttpsServer.create(loopback(), 1024);
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore(), KEYSTORE_PASSWORD);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(kmf.getKeyManagers(), null, null);
+        server.setHttpsConfigurator(new HttpsConfigurator(context));
+        return new StubDeepSeekServer(server, "https", delayMs);
+    }
+
+    /**
+     * 信任桩服务自签证书的客户端SSLContext
+     */
+    static SSLContext clientContext() throws Exception {
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(keyStore());
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, tmf.getTrustManagers(), null);
+        return context;
+    }
+
+    public URI completionsUri() {
+        return URI.create(scheme + "://localhost:" + server.getAddress().getPort() + "/chat/completions");
+    }
+
+    public int completions() {
+        return completions.get();
+    }
+
+    void setDelayMs(long delayMs) {
+        this.delayMs = delayMs;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            in.readAllBytes();
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            if (delayMs > 0) {
+                Thread.sleep(delayMs);
+            }
+            byte[] body = RESPONSE_BODY.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            completions.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static InetSocketAddress loopback() {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+    }
+
+    private static KeyStore keyStore() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = StubDeepSeekServer.class.getResourceAsStream("/stub-tls.p12")) {
+            keyStore.load(in, KEYSTORE_PASSWORD);
+        }
+        return keyStore;
+    }
+
+    private static String quote(String json) {
+        return "\"" + json.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}